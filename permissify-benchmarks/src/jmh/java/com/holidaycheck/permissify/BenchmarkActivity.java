@@ -0,0 +1,72 @@
+package com.holidaycheck.permissify;
+
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+
+import java.util.Arrays;
+
+/**
+ * PermissifyActivity that benchmarks drive through its lifecycle by hand. It keeps the last delivered status, so benchmarks can return it.
+ * Permission requests are answered by its {@link BenchmarkContext}, denials are delivered right away on the calling thread.
+ */
+class BenchmarkActivity extends PermissifyActivity {
+
+    PermissifyManager.CallRequestStatus lastStatus;
+
+    private final BenchmarkContext context;
+
+    private BenchmarkActivity(BenchmarkContext context) {
+        this.context = context;
+        attachBaseContext(context);
+    }
+
+    /**
+     * Creates activity and restores its state, like the system does when activity is recreated
+     *
+     * @param savedInstanceState - state saved by the previous instance or null
+     */
+    static BenchmarkActivity create(BenchmarkContext context, Bundle savedInstanceState) {
+        BenchmarkActivity activity = new BenchmarkActivity(context);
+        activity.onCreate(savedInstanceState);
+        if (savedInstanceState != null) {
+            activity.onRestoreInstanceState(savedInstanceState);
+        }
+        activity.onResume();
+        return activity;
+    }
+
+    Bundle saveInstanceState() {
+        Bundle outState = new Bundle();
+        onSaveInstanceState(outState);
+        return outState;
+    }
+
+    void destroy(boolean finishing) {
+        if (finishing) {
+            finish();
+        }
+        onPause();
+        onDestroy();
+    }
+
+    @Override
+    public boolean shouldShowRequestPermissionRationale(String permission) {
+        return context.shouldShowRationale(permission);
+    }
+
+    @Override
+    public void requestPermissions(String[] permissions, int requestCode) {
+        if (!context.answersRequests()) {
+            return;
+        }
+
+        int[] grantResults = new int[permissions.length];
+        Arrays.fill(grantResults, PackageManager.PERMISSION_DENIED);
+        onRequestPermissionsResult(requestCode, permissions, grantResults);
+    }
+
+    @Override
+    public void onCallWithPermissionResult(int callId, PermissifyManager.CallRequestStatus status) {
+        lastStatus = status;
+    }
+}
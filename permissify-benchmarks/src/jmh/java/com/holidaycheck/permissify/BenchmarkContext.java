@@ -0,0 +1,130 @@
+package com.holidaycheck.permissify;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.PermissionInfo;
+import android.content.res.Resources;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Application context of benchmarks. Its package requests a fixed set of permissions, all of them dangerous except {@link #INTERNET}.
+ * It also stands in for the permission system: grant state and rationale are fixed for the whole benchmark, and requests are either
+ * denied right away or never answered.
+ */
+class BenchmarkContext extends Context {
+
+    static final String CAMERA = "android.permission.CAMERA";
+    static final String ACCESS_FINE_LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+    static final String READ_CONTACTS = "android.permission.READ_CONTACTS";
+    static final String RECORD_AUDIO = "android.permission.RECORD_AUDIO";
+    static final String READ_CALENDAR = "android.permission.READ_CALENDAR";
+    static final String SEND_SMS = "android.permission.SEND_SMS";
+    static final String READ_PHONE_STATE = "android.permission.READ_PHONE_STATE";
+    static final String BODY_SENSORS = "android.permission.BODY_SENSORS";
+    static final String INTERNET = "android.permission.INTERNET";
+
+    static final String[] DANGEROUS_PERMISSIONS = {
+        CAMERA, ACCESS_FINE_LOCATION, READ_CONTACTS, RECORD_AUDIO, READ_CALENDAR, SEND_SMS, READ_PHONE_STATE, BODY_SENSORS
+    };
+
+    private static final String PACKAGE_NAME = "com.holidaycheck.permissify.benchmarks";
+    private static final String GROUP_PREFIX = "android.permission-group.";
+
+    private final Set<String> grantedPermissions = new HashSet<>();
+    private final Set<String> rationalePermissions = new HashSet<>();
+    private final boolean answerRequests;
+
+    private final Resources resources = new Resources();
+    private final PackageManager packageManager = new PackageManager() {
+        @Override
+        public PackageInfo getPackageInfo(String packageName, int flags) throws NameNotFoundException {
+            if (!PACKAGE_NAME.equals(packageName)) {
+                throw new NameNotFoundException(packageName);
+            }
+
+            PackageInfo packageInfo = new PackageInfo();
+            if ((flags & GET_PERMISSIONS) != 0) {
+                String[] permissions = Arrays.copyOf(DANGEROUS_PERMISSIONS, DANGEROUS_PERMISSIONS.length + 1);
+                permissions[DANGEROUS_PERMISSIONS.length] = INTERNET;
+                packageInfo.requestedPermissions = permissions;
+            }
+            return packageInfo;
+        }
+
+        @Override
+        public PermissionInfo getPermissionInfo(String name, int flags) throws NameNotFoundException {
+            PermissionInfo permissionInfo = new PermissionInfo();
+
+            if (INTERNET.equals(name)) {
+                permissionInfo.protectionLevel = PermissionInfo.PROTECTION_NORMAL;
+            } else if (Arrays.asList(DANGEROUS_PERMISSIONS).contains(name)) {
+                permissionInfo.protectionLevel = PermissionInfo.PROTECTION_DANGEROUS;
+                permissionInfo.group = getGroup(name);
+            } else {
+                throw new NameNotFoundException(name);
+            }
+            return permissionInfo;
+        }
+    };
+
+    /**
+     * @param answerRequests - true to deny every permission request right away, false to leave requests in flight forever
+     */
+    BenchmarkContext(boolean answerRequests) {
+        this.answerRequests = answerRequests;
+    }
+
+    /**
+     * Gets group of dangerous permission, every one of them has its own group
+     */
+    static String getGroup(String permission) {
+        return GROUP_PREFIX + permission.substring(permission.lastIndexOf('.') + 1);
+    }
+
+    BenchmarkContext setGranted(String... permissions) {
+        grantedPermissions.addAll(Arrays.asList(permissions));
+        return this;
+    }
+
+    BenchmarkContext setShowRationale(String... permissions) {
+        rationalePermissions.addAll(Arrays.asList(permissions));
+        return this;
+    }
+
+    boolean shouldShowRationale(String permission) {
+        return rationalePermissions.contains(permission);
+    }
+
+    boolean answersRequests() {
+        return answerRequests;
+    }
+
+    @Override
+    public int checkSelfPermission(String permission) {
+        return grantedPermissions.contains(permission) ? PackageManager.PERMISSION_GRANTED : PackageManager.PERMISSION_DENIED;
+    }
+
+    @Override
+    public PackageManager getPackageManager() {
+        return packageManager;
+    }
+
+    @Override
+    public String getPackageName() {
+        return PACKAGE_NAME;
+    }
+
+    @Override
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    @Override
+    public Resources getResources() {
+        return resources;
+    }
+}
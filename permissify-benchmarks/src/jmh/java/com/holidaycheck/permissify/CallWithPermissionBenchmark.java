@@ -0,0 +1,84 @@
+package com.holidaycheck.permissify;
+
+import android.content.DialogInterface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures callWithPermission from the call until the final status is delivered to the activity, for each path that the call can take.
+ * Every invocation leaves no pending call behind, so all of them start from the same state.
+ */
+@State(Scope.Thread)
+public class CallWithPermissionBenchmark {
+
+    private static final int CALL_ID = 1;
+    private static final String DIALOG_TAG = "Permissify";
+    private static final long WARM_UP_TIMEOUT_SECONDS = 10;
+
+    private BenchmarkActivity activity;
+    private PermissifyManager manager;
+    private PermissionCallOptions noDenyDialogOptions;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        BenchmarkContext context = new BenchmarkContext(true)
+            .setGranted(BenchmarkContext.CAMERA)
+            .setShowRationale(BenchmarkContext.ACCESS_FINE_LOCATION);
+        PermissifyConfig.initDefault(context, new PermissifyConfig.Builder().build());
+        // grant state is checked against the bitset only once permission metadata is loaded
+        if (!PermissionInfoCache.get().awaitWarmUp(WARM_UP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Permission metadata wasn't loaded in " + WARM_UP_TIMEOUT_SECONDS + " s");
+        }
+
+        activity = BenchmarkActivity.create(context, null);
+        manager = activity.getPermissifyManager();
+        noDenyDialogOptions = new PermissionCallOptions.Builder()
+            .withDefaultRationaleDialog(true)
+            .withDefaultDenyDialog(false)
+            .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        activity.destroy(true);
+    }
+
+    /**
+     * Permission is already granted, so the status is delivered right away
+     */
+    @Benchmark
+    public PermissifyManager.CallRequestStatus granted() {
+        manager.callWithPermission(activity, CALL_ID, BenchmarkContext.CAMERA);
+        return activity.lastStatus;
+    }
+
+    /**
+     * Default rationale dialog is shown and confirmed, then the system request is denied
+     */
+    @Benchmark
+    public PermissifyManager.CallRequestStatus rationale() {
+        manager.callWithPermission(activity, CALL_ID, BenchmarkContext.ACCESS_FINE_LOCATION);
+
+        // positive button of the alert dialog notifies the listener and dismisses the dialog
+        PermissionRationaleDialogFragment dialog = (PermissionRationaleDialogFragment) activity.getSupportFragmentManager().findFragmentByTag(DIALOG_TAG);
+        dialog.onClick(dialog.getDialog(), DialogInterface.BUTTON_POSITIVE);
+        dialog.dismiss();
+
+        return activity.lastStatus;
+    }
+
+    /**
+     * System request is made right away and denied forever. The call handles denial on its own, so no deny dialog is shown.
+     */
+    @Benchmark
+    public PermissifyManager.CallRequestStatus systemRequest() {
+        manager.callWithPermission(activity, CALL_ID, BenchmarkContext.READ_CONTACTS, noDenyDialogOptions);
+        return activity.lastStatus;
+    }
+}
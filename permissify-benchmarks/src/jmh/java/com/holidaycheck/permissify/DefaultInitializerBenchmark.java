@@ -0,0 +1,61 @@
+package com.holidaycheck.permissify;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+
+/**
+ * Measures filling of missing dialog messages with {@link PermissionCallDefaultInitializer#initializeWithDefault}
+ */
+@State(Scope.Thread)
+public class DefaultInitializerBenchmark {
+
+    private final PermissionCallDefaultInitializer initializer = new PermissionCallDefaultInitializer();
+    private final BenchmarkContext context = new BenchmarkContext(false);
+
+    private PermissifyConfig config;
+    private PermissionCallOptions defaultOptions;
+    private PermissionCallOptions customOptions;
+
+    @Setup
+    public void setUp() {
+        config = new PermissifyConfig.Builder()
+            .withDefaultTextForPermissions(Collections.singletonMap(BenchmarkContext.getGroup(BenchmarkContext.CAMERA),
+                new DialogText(R.string.permissify_permission_rationale_title, R.string.permissify_go_to_settings)))
+            .build();
+        defaultOptions = config.getDefaultPermissionCallOptions();
+        customOptions = new PermissionCallOptions.Builder()
+            .withDefaultRationaleDialog(true)
+            .withDefaultDenyDialog(true)
+            .withRationaleDialogMsg("Camera is needed to take photos")
+            .withDenyDialogMsg("Camera can be allowed in settings")
+            .build();
+    }
+
+    /**
+     * Call has its own messages, so the options are returned as they are
+     */
+    @Benchmark
+    public PermissionCallOptions customMessages() {
+        return initializer.initializeWithDefault(context, BenchmarkContext.CAMERA, customOptions, config);
+    }
+
+    /**
+     * Messages are copied from the text of permission group
+     */
+    @Benchmark
+    public PermissionCallOptions groupText() {
+        return initializer.initializeWithDefault(context, BenchmarkContext.CAMERA, defaultOptions, config);
+    }
+
+    /**
+     * Permission group has no text, so the fallback text is used
+     */
+    @Benchmark
+    public PermissionCallOptions fallbackText() {
+        return initializer.initializeWithDefault(context, BenchmarkContext.READ_CONTACTS, defaultOptions, config);
+    }
+}
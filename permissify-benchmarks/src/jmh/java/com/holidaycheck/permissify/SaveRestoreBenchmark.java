@@ -0,0 +1,88 @@
+package com.holidaycheck.permissify;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures saving and restoring of pending calls, with the saved state written to {@link Parcel} and read back like the system does.
+ * Half of the calls wait for custom rationale and half of them for system request that is never answered.
+ * Fake fragment manager doesn't restore fragments, so calls don't use the default rationale dialog.
+ */
+@State(Scope.Thread)
+public class SaveRestoreBenchmark {
+
+    @Param({"1", "8", "32"})
+    public int pendingCalls;
+
+    private BenchmarkContext context;
+    private BenchmarkActivity activity;
+    private BenchmarkActivity restoredActivity;
+
+    @Setup
+    public void setUp() {
+        PermissifyConfig.initDefault(new PermissifyConfig.Builder().build());
+
+        String[] permissions = BenchmarkContext.DANGEROUS_PERMISSIONS;
+        context = new BenchmarkContext(false);
+        for (int i = 0; i < permissions.length; i += 2) {
+            context.setShowRationale(permissions[i]);
+        }
+
+        activity = BenchmarkActivity.create(context, null);
+        restoredActivity = BenchmarkActivity.create(context, null);
+
+        for (int i = 0; i < pendingCalls; i++) {
+            PermissionCallOptions options = new PermissionCallOptions.Builder()
+                .withDefaultRationaleDialog(false)
+                .withDefaultDenyDialog(true)
+                .build();
+            activity.getPermissifyManager().callWithPermission(activity, i + 1, permissions[i % permissions.length], options);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        activity.destroy(true);
+        restoredActivity.destroy(true);
+    }
+
+    /**
+     * Saves pending calls and restores them in manager of another activity
+     */
+    @Benchmark
+    public Bundle roundTrip() {
+        Bundle savedInstanceState = writeAndRead(activity.saveInstanceState());
+        restoredActivity.getPermissifyManager().getLifecycleHandler().onRestoreInstanceState(savedInstanceState);
+        return savedInstanceState;
+    }
+
+    /**
+     * Recreates activity like a configuration change does, including creation of the new manager
+     */
+    @Benchmark
+    public BenchmarkActivity recreate() {
+        Bundle outState = activity.saveInstanceState();
+        activity.destroy(false);
+
+        activity = BenchmarkActivity.create(context, writeAndRead(outState));
+        return activity;
+    }
+
+    private static Bundle writeAndRead(Bundle outState) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            outState.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return Bundle.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.holidaycheck.permissify;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.util.SparseArray;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.Serializable;
+import java.util.HashMap;
+
+/**
+ * Compares saved state of pending calls in the Parcelable format with the Serializable format that was used before, by time of
+ * save/restore round-trip through {@link Parcel} and by byte size of the parcel, which is printed once per trial.
+ * The Serializable state is rebuilt from the old classes with the values of the same pending calls as in {@link SaveRestoreBenchmark}.
+ */
+@State(Scope.Thread)
+public class SavedStateFormatBenchmark {
+
+    private static final String SAVE_INSTANCE_KEY_PENDING_PERMISSION_CALL = "pendingPermissionCalls";
+
+    @Param({"1", "8", "32"})
+    public int pendingCalls;
+
+    private BenchmarkActivity activity;
+    private Bundle parcelableState;
+    private Bundle serializableState;
+
+    @Setup
+    public void setUp() {
+        PermissifyConfig.initDefault(new PermissifyConfig.Builder().build());
+
+        String[] permissions = BenchmarkContext.DANGEROUS_PERMISSIONS;
+        BenchmarkContext context = new BenchmarkContext(false);
+        for (int i = 0; i < permissions.length; i += 2) {
+            context.setShowRationale(permissions[i]);
+        }
+
+        activity = BenchmarkActivity.create(context, null);
+        for (int i = 0; i < pendingCalls; i++) {
+            PermissionCallOptions options = new PermissionCallOptions.Builder()
+                .withDefaultRationaleDialog(false)
+                .withDefaultDenyDialog(true)
+                .build();
+            activity.getPermissifyManager().callWithPermission(activity, i + 1, permissions[i % permissions.length], options);
+        }
+
+        parcelableState = activity.saveInstanceState();
+        SparseArray<PermissifyManager.PendingPermissionCall> calls = parcelableState.getSparseParcelableArray(SAVE_INSTANCE_KEY_PENDING_PERMISSION_CALL);
+        HashMap<Integer, LegacyPendingCall> legacyCalls = new HashMap<>();
+        for (int i = 0; i < calls.size(); i++) {
+            legacyCalls.put(calls.keyAt(i), new LegacyPendingCall(calls.valueAt(i)));
+        }
+        serializableState = new Bundle();
+        serializableState.putSerializable(SAVE_INSTANCE_KEY_PENDING_PERMISSION_CALL, legacyCalls);
+
+        System.out.println(String.format("Saved state of %d pending calls: Parcelable %d B, Serializable %d B",
+            pendingCalls, getParcelSize(parcelableState), getParcelSize(serializableState)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        activity.destroy(true);
+    }
+
+    /**
+     * Writes pending calls in the current format and reads them back
+     */
+    @Benchmark
+    public Bundle parcelable() {
+        return writeAndRead(parcelableState);
+    }
+
+    /**
+     * Writes the same pending calls in the format that was used before and reads them back
+     */
+    @Benchmark
+    public Bundle serializable() {
+        return writeAndRead(serializableState);
+    }
+
+    private static int getParcelSize(Bundle state) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            state.writeToParcel(parcel, 0);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static Bundle writeAndRead(Bundle outState) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            outState.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return Bundle.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Pending call as it was saved before it became Parcelable
+     */
+    private static class LegacyPendingCall implements Serializable {
+
+        final LegacyCallOptions options;
+        final LegacyInternalData internalData;
+
+        LegacyPendingCall(PermissifyManager.PendingPermissionCall pendingCall) {
+            options = new LegacyCallOptions();
+            options.showRationaleDialog = pendingCall.options.showRationaleDialog();
+            options.rationaleDialogMsg = pendingCall.options.getRationaleDialogMsg();
+            options.rationaleDialogMsgRes = pendingCall.options.getRationaleDialogMsgRes();
+            options.rationaleEnabled = pendingCall.options.isRationaleEnabled();
+            options.showDenyDialog = pendingCall.options.showDenyDialog();
+            options.denyDialogMsg = pendingCall.options.getDenyDialogMsg();
+            options.denyDialogMsgRes = pendingCall.options.getDenyDialogMsgRes();
+
+            internalData = new LegacyInternalData();
+            internalData.callId = pendingCall.internalData.callId;
+            internalData.requestFromFragment = pendingCall.internalData.requestFromFragment;
+            internalData.fragmentId = pendingCall.internalData.fragmentId;
+            internalData.permissions = pendingCall.internalData.permissions;
+            internalData.multiplePermissions = pendingCall.internalData.multiplePermissions;
+        }
+    }
+
+    private static class LegacyCallOptions implements Serializable {
+
+        boolean showRationaleDialog;
+        String rationaleDialogMsg;
+        int rationaleDialogMsgRes;
+        boolean rationaleEnabled = true;
+
+        boolean showDenyDialog;
+        String denyDialogMsg;
+        int denyDialogMsgRes;
+    }
+
+    private static class LegacyInternalData implements Serializable {
+
+        int callId;
+        boolean requestFromFragment;
+        int fragmentId;
+        String[] permissions;
+        boolean multiplePermissions;
+    }
+}
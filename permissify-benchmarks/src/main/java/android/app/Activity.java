@@ -0,0 +1,63 @@
+package android.app;
+
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.os.Bundle;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
+/**
+ * Fake of the framework Activity. Lifecycle methods are called directly by benchmarks and base context is attached by the subclass.
+ * There is no permission system, so requests are dropped and rationale is never shown unless the subclass answers them.
+ */
+public class Activity extends ContextWrapper {
+
+    private boolean finishing;
+
+    public Activity() {
+        super(null);
+    }
+
+    protected void onCreate(Bundle savedInstanceState) {
+    }
+
+    protected void onResume() {
+    }
+
+    protected void onPause() {
+    }
+
+    protected void onDestroy() {
+    }
+
+    protected void onSaveInstanceState(Bundle outState) {
+    }
+
+    protected void onRestoreInstanceState(Bundle savedInstanceState) {
+    }
+
+    public void requestPermissions(String[] permissions, int requestCode) {
+    }
+
+    public boolean shouldShowRequestPermissionRationale(String permission) {
+        return false;
+    }
+
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+    }
+
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+    }
+
+    public boolean isFinishing() {
+        return finishing;
+    }
+
+    public void finish() {
+        finishing = true;
+    }
+
+    public void startActivity(Intent intent) {
+    }
+}
@@ -0,0 +1,23 @@
+package android.app;
+
+import android.content.Context;
+import android.content.DialogInterface;
+
+/**
+ * Fake of the framework Dialog. There is no window on the plain JVM, so creating, showing and dismissing it does nothing.
+ */
+public class Dialog implements DialogInterface {
+
+    public Dialog(Context context) {
+    }
+
+    public void create() {
+    }
+
+    public void show() {
+    }
+
+    @Override
+    public void dismiss() {
+    }
+}
@@ -0,0 +1,27 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+
+public abstract class Context {
+
+    public static final int MODE_PRIVATE = 0;
+
+    public abstract PackageManager getPackageManager();
+
+    public abstract String getPackageName();
+
+    public abstract Context getApplicationContext();
+
+    public abstract Resources getResources();
+
+    public abstract int checkSelfPermission(String permission);
+
+    public SharedPreferences getSharedPreferences(String name, int mode) {
+        throw new UnsupportedOperationException("Benchmarks don't use preferences");
+    }
+
+    public final String getString(int resId) {
+        return getResources().getString(resId);
+    }
+}
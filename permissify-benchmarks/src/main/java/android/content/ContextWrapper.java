@@ -0,0 +1,49 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+
+/**
+ * Fake of the framework ContextWrapper that delegates everything to the base context, like the framework does
+ */
+public class ContextWrapper extends Context {
+
+    private Context base;
+
+    public ContextWrapper(Context base) {
+        this.base = base;
+    }
+
+    protected void attachBaseContext(Context base) {
+        this.base = base;
+    }
+
+    public Context getBaseContext() {
+        return base;
+    }
+
+    @Override
+    public PackageManager getPackageManager() {
+        return base.getPackageManager();
+    }
+
+    @Override
+    public String getPackageName() {
+        return base.getPackageName();
+    }
+
+    @Override
+    public Context getApplicationContext() {
+        return base.getApplicationContext();
+    }
+
+    @Override
+    public Resources getResources() {
+        return base.getResources();
+    }
+
+    @Override
+    public int checkSelfPermission(String permission) {
+        return base.checkSelfPermission(permission);
+    }
+}
@@ -0,0 +1,18 @@
+package android.content;
+
+public interface DialogInterface {
+
+    int BUTTON_POSITIVE = -1;
+
+    void dismiss();
+
+    interface OnClickListener {
+
+        void onClick(DialogInterface dialog, int which);
+    }
+
+    interface OnDismissListener {
+
+        void onDismiss(DialogInterface dialog);
+    }
+}
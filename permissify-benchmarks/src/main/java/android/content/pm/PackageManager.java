@@ -0,0 +1,21 @@
+package android.content.pm;
+
+public abstract class PackageManager {
+
+    public static final int PERMISSION_GRANTED = 0;
+    public static final int PERMISSION_DENIED = -1;
+    public static final int GET_PERMISSIONS = 0x1000;
+
+    public abstract PackageInfo getPackageInfo(String packageName, int flags) throws NameNotFoundException;
+
+    public abstract PermissionInfo getPermissionInfo(String name, int flags) throws NameNotFoundException;
+
+    public static class NameNotFoundException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        public NameNotFoundException(String name) {
+            super(name);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package android.content.pm;
+
+public class PermissionInfo {
+
+    public static final int PROTECTION_NORMAL = 0;
+    public static final int PROTECTION_DANGEROUS = 1;
+    public static final int PROTECTION_MASK_BASE = 0xf;
+
+    public String group;
+    public int protectionLevel;
+}
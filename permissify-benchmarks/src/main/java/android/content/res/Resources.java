@@ -0,0 +1,11 @@
+package android.content.res;
+
+/**
+ * Fake of the framework Resources. There are no string tables on the plain JVM, so strings are named after their ids.
+ */
+public class Resources {
+
+    public String getString(int id) {
+        return "string/" + id;
+    }
+}
@@ -0,0 +1,11 @@
+package android.net;
+
+public class Uri {
+
+    private Uri() {
+    }
+
+    public static Uri fromParts(String scheme, String ssp, String fragment) {
+        return new Uri();
+    }
+}
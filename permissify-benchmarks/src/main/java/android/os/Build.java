@@ -0,0 +1,18 @@
+package android.os;
+
+/**
+ * Fake of the framework Build. Benchmarks behave like on API 23, the first one with runtime permissions.
+ */
+public class Build {
+
+    public static class VERSION {
+
+        public static final int SDK_INT = VERSION_CODES.M;
+    }
+
+    public static class VERSION_CODES {
+
+        public static final int LOLLIPOP = 21;
+        public static final int M = 23;
+    }
+}
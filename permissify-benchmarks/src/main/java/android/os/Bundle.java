@@ -0,0 +1,186 @@
+package android.os;
+
+import android.util.SparseArray;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fake of the framework Bundle. Values are kept in a map and written with type tags, like the framework does,
+ * so saved instance state can be round-tripped through {@link Parcel}. Unlike the framework it is unparcelled eagerly.
+ * Only the value types that the library saves are supported, and Serializable values for comparison with the format that it used before.
+ */
+public final class Bundle implements Parcelable {
+
+    private static final int VAL_NULL = -1;
+    private static final int VAL_STRING = 0;
+    private static final int VAL_PARCELABLE = 4;
+    private static final int VAL_ARRAYLIST = 11;
+    private static final int VAL_SPARSEARRAY = 12;
+    private static final int VAL_SERIALIZABLE = 21;
+
+    public static final Parcelable.Creator<Bundle> CREATOR = new Parcelable.Creator<Bundle>() {
+        @Override
+        public Bundle createFromParcel(Parcel source) {
+            Bundle bundle = new Bundle();
+            int size = source.readInt();
+            for (int i = 0; i < size; i++) {
+                bundle.values.put(source.readString(), readValue(source));
+            }
+            return bundle;
+        }
+
+        @Override
+        public Bundle[] newArray(int size) {
+            return new Bundle[size];
+        }
+    };
+
+    private final Map<String, Object> values = new HashMap<>();
+
+    public Set<String> keySet() {
+        return values.keySet();
+    }
+
+    public boolean containsKey(String key) {
+        return values.containsKey(key);
+    }
+
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    public String getString(String key) {
+        return (String) values.get(key);
+    }
+
+    public void putParcelable(String key, Parcelable value) {
+        values.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> T getParcelable(String key) {
+        return (T) values.get(key);
+    }
+
+    public void putSparseParcelableArray(String key, SparseArray<? extends Parcelable> value) {
+        values.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> SparseArray<T> getSparseParcelableArray(String key) {
+        return (SparseArray<T>) values.get(key);
+    }
+
+    public void putParcelableArrayList(String key, ArrayList<? extends Parcelable> value) {
+        values.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> ArrayList<T> getParcelableArrayList(String key) {
+        return (ArrayList<T>) values.get(key);
+    }
+
+    public void putSerializable(String key, Serializable value) {
+        values.put(key, new SerializableValue(value));
+    }
+
+    public Serializable getSerializable(String key) {
+        Object value = values.get(key);
+        return value != null ? ((SerializableValue) value).value : null;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            dest.writeString(entry.getKey());
+            writeValue(dest, entry.getValue());
+        }
+    }
+
+    private static void writeValue(Parcel dest, Object value) {
+        if (value == null) {
+            dest.writeInt(VAL_NULL);
+        } else if (value instanceof String) {
+            dest.writeInt(VAL_STRING);
+            dest.writeString((String) value);
+        } else if (value instanceof Parcelable) {
+            dest.writeInt(VAL_PARCELABLE);
+            dest.writeParcelable((Parcelable) value, 0);
+        } else if (value instanceof ArrayList) {
+            ArrayList<?> list = (ArrayList<?>) value;
+            dest.writeInt(VAL_ARRAYLIST);
+            dest.writeInt(list.size());
+            for (Object item : list) {
+                writeValue(dest, item);
+            }
+        } else if (value instanceof SparseArray) {
+            SparseArray<?> array = (SparseArray<?>) value;
+            dest.writeInt(VAL_SPARSEARRAY);
+            dest.writeInt(array.size());
+            for (int i = 0; i < array.size(); i++) {
+                dest.writeInt(array.keyAt(i));
+                writeValue(dest, array.valueAt(i));
+            }
+        } else if (value instanceof SerializableValue) {
+            dest.writeInt(VAL_SERIALIZABLE);
+            dest.writeSerializable(((SerializableValue) value).value);
+        } else {
+            throw new IllegalArgumentException("Unable to write value " + value);
+        }
+    }
+
+    private static Object readValue(Parcel source) {
+        int type = source.readInt();
+        switch (type) {
+            case VAL_NULL:
+                return null;
+            case VAL_STRING:
+                return source.readString();
+            case VAL_PARCELABLE:
+                return source.readParcelable(Bundle.class.getClassLoader());
+            case VAL_ARRAYLIST: {
+                int size = source.readInt();
+                ArrayList<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(source));
+                }
+                return list;
+            }
+            case VAL_SPARSEARRAY: {
+                int size = source.readInt();
+                SparseArray<Object> array = new SparseArray<>(size);
+                for (int i = 0; i < size; i++) {
+                    int key = source.readInt();
+                    array.append(key, readValue(source));
+                }
+                return array;
+            }
+            case VAL_SERIALIZABLE:
+                return new SerializableValue(source.readSerializable());
+            default:
+                throw new IllegalArgumentException("Unknown value type " + type);
+        }
+    }
+
+    /**
+     * Value that was put with {@link #putSerializable}, so that it is written with Java serialization even if it is a String or ArrayList
+     */
+    private static class SerializableValue {
+
+        final Serializable value;
+
+        SerializableValue(Serializable value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package android.os;
+
+/**
+ * Fake of the framework Handler. Benchmarks run everything on the main thread, so nothing is ever posted to it.
+ */
+public class Handler {
+
+    public Handler(Looper looper) {
+    }
+
+    public final boolean post(Runnable runnable) {
+        throw new UnsupportedOperationException("Benchmarks don't post to the main thread");
+    }
+
+    public final boolean postDelayed(Runnable runnable, long delayMillis) {
+        throw new UnsupportedOperationException("Benchmarks don't post to the main thread");
+    }
+
+    public final void removeCallbacks(Runnable runnable) {
+    }
+}
@@ -0,0 +1,26 @@
+package android.os;
+
+/**
+ * Fake of the framework Looper. Benchmarks run on a single thread, so every thread is treated as the main thread.
+ */
+public final class Looper {
+
+    private static final Looper sMainLooper = new Looper();
+
+    private final MessageQueue queue = new MessageQueue();
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return sMainLooper;
+    }
+
+    public static Looper myLooper() {
+        return sMainLooper;
+    }
+
+    public static MessageQueue myQueue() {
+        return sMainLooper.queue;
+    }
+}
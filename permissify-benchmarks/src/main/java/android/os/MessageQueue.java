@@ -0,0 +1,15 @@
+package android.os;
+
+public final class MessageQueue {
+
+    MessageQueue() {
+    }
+
+    public void addIdleHandler(IdleHandler handler) {
+    }
+
+    public interface IdleHandler {
+
+        boolean queueIdle();
+    }
+}
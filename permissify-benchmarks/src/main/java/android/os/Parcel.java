@@ -0,0 +1,273 @@
+package android.os;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fake of the framework Parcel that keeps data in a growable byte array. Values are written in the same layout as on the device
+ * (4 byte aligned ints, UTF-16 strings), so data sizes and copying costs stay close to the real ones.
+ */
+public final class Parcel {
+
+    private static final Map<String, Parcelable.Creator<?>> sCreators = new HashMap<>();
+
+    private byte[] data = new byte[64];
+    private int dataSize;
+    private int dataPosition;
+
+    public static Parcel obtain() {
+        return new Parcel();
+    }
+
+    private Parcel() {
+    }
+
+    public void recycle() {
+        dataSize = 0;
+        dataPosition = 0;
+    }
+
+    public int dataSize() {
+        return dataSize;
+    }
+
+    public void setDataPosition(int position) {
+        dataPosition = position;
+    }
+
+    public void writeInt(int value) {
+        ensureCapacity(4);
+        data[dataPosition++] = (byte) value;
+        data[dataPosition++] = (byte) (value >> 8);
+        data[dataPosition++] = (byte) (value >> 16);
+        data[dataPosition++] = (byte) (value >> 24);
+        updateSize();
+    }
+
+    public int readInt() {
+        return (data[dataPosition++] & 0xff)
+            | (data[dataPosition++] & 0xff) << 8
+            | (data[dataPosition++] & 0xff) << 16
+            | (data[dataPosition++] & 0xff) << 24;
+    }
+
+    public void writeLong(long value) {
+        writeInt((int) value);
+        writeInt((int) (value >> 32));
+    }
+
+    public long readLong() {
+        return (readInt() & 0xffffffffL) | ((long) readInt()) << 32;
+    }
+
+    public void writeString(String value) {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+
+        int length = value.length();
+        writeInt(length);
+        ensureCapacity(align(length * 2 + 2));
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            data[dataPosition++] = (byte) c;
+            data[dataPosition++] = (byte) (c >> 8);
+        }
+        data[dataPosition++] = 0;
+        data[dataPosition++] = 0;
+        dataPosition = align(dataPosition);
+        updateSize();
+    }
+
+    public String readString() {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ((data[dataPosition++] & 0xff) | (data[dataPosition++] & 0xff) << 8);
+        }
+        dataPosition = align(dataPosition + 2);
+        return new String(chars);
+    }
+
+    public void writeIntArray(int[] value) {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+
+        writeInt(value.length);
+        for (int item : value) {
+            writeInt(item);
+        }
+    }
+
+    public int[] createIntArray() {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        int[] value = new int[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = readInt();
+        }
+        return value;
+    }
+
+    public void writeStringArray(String[] value) {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+
+        writeInt(value.length);
+        for (String item : value) {
+            writeString(item);
+        }
+    }
+
+    public String[] createStringArray() {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        String[] value = new String[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = readString();
+        }
+        return value;
+    }
+
+    public void writeByteArray(byte[] value) {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+
+        writeInt(value.length);
+        ensureCapacity(align(value.length));
+        System.arraycopy(value, 0, data, dataPosition, value.length);
+        dataPosition = align(dataPosition + value.length);
+        updateSize();
+    }
+
+    public byte[] createByteArray() {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] value = Arrays.copyOfRange(data, dataPosition, dataPosition + length);
+        dataPosition = align(dataPosition + length);
+        return value;
+    }
+
+    /**
+     * Writes class name and Java serialization of the value, like the framework does
+     */
+    public void writeSerializable(Serializable value) {
+        if (value == null) {
+            writeString(null);
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(value);
+            out.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to serialize " + value.getClass().getName(), e);
+        }
+
+        writeString(value.getClass().getName());
+        writeByteArray(bytes.toByteArray());
+    }
+
+    public Serializable readSerializable() {
+        String name = readString();
+        if (name == null) {
+            return null;
+        }
+
+        try {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(createByteArray()));
+            return (Serializable) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Unable to deserialize " + name, e);
+        }
+    }
+
+    public void writeParcelable(Parcelable value, int flags) {
+        if (value == null) {
+            writeString(null);
+            return;
+        }
+
+        writeString(value.getClass().getName());
+        value.writeToParcel(this, flags);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> T readParcelable(ClassLoader loader) {
+        String name = readString();
+        if (name == null) {
+            return null;
+        }
+
+        return (T) getCreator(name, loader).createFromParcel(this);
+    }
+
+    /**
+     * Finds CREATOR of Parcelable class, like the framework it caches them by class name
+     */
+    private static Parcelable.Creator<?> getCreator(String name, ClassLoader loader) {
+        synchronized (sCreators) {
+            Parcelable.Creator<?> creator = sCreators.get(name);
+            if (creator != null) {
+                return creator;
+            }
+
+            try {
+                Field field = Class.forName(name, true, loader).getField("CREATOR");
+                field.setAccessible(true);
+                creator = (Parcelable.Creator<?>) field.get(null);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException("Unable to find CREATOR of " + name, e);
+            }
+
+            sCreators.put(name, creator);
+            return creator;
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (dataPosition + length > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, dataPosition + length));
+        }
+    }
+
+    private void updateSize() {
+        if (dataPosition > dataSize) {
+            dataSize = dataPosition;
+        }
+    }
+
+    private static int align(int position) {
+        return (position + 3) & ~3;
+    }
+}
@@ -0,0 +1,18 @@
+package android.support.v4.app;
+
+import android.app.Activity;
+import android.support.v4.content.ContextCompat;
+
+/**
+ * Fake of the support ActivityCompat. It behaves like on API 23 and newer, where it calls the activity.
+ */
+public class ActivityCompat extends ContextCompat {
+
+    public static boolean shouldShowRequestPermissionRationale(Activity activity, String permission) {
+        return activity.shouldShowRequestPermissionRationale(permission);
+    }
+
+    public static void requestPermissions(Activity activity, String[] permissions, int requestCode) {
+        activity.requestPermissions(permissions, requestCode);
+    }
+}
@@ -0,0 +1,46 @@
+package android.support.v4.app;
+
+import android.app.Dialog;
+import android.content.DialogInterface;
+import android.os.Bundle;
+
+/**
+ * Fake of the support DialogFragment. Its dialog is created and shown when the fragment is added.
+ */
+public class DialogFragment extends Fragment implements DialogInterface.OnDismissListener {
+
+    private Dialog dialog;
+
+    public Dialog onCreateDialog(Bundle savedInstanceState) {
+        return new Dialog(getActivity());
+    }
+
+    public void setCancelable(boolean cancelable) {
+    }
+
+    public void dismiss() {
+        dismissAllowingStateLoss();
+    }
+
+    public void dismissAllowingStateLoss() {
+        // like the framework, the fragment is still attached when it is notified
+        onDismiss(dialog);
+        FragmentManager fragmentManager = getFragmentManager();
+        if (fragmentManager != null) {
+            fragmentManager.beginTransaction().remove(this).commitAllowingStateLoss();
+        }
+    }
+
+    public Dialog getDialog() {
+        return dialog;
+    }
+
+    @Override
+    public void onDismiss(DialogInterface dialog) {
+    }
+
+    void showDialog() {
+        dialog = onCreateDialog(null);
+        dialog.show();
+    }
+}
@@ -0,0 +1,81 @@
+package android.support.v4.app;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+
+/**
+ * Fake of the support Fragment. It is attached to its activity when the transaction that adds it is committed.
+ */
+public class Fragment {
+
+    private FragmentActivity activity;
+    private Bundle arguments;
+    private String tag;
+    private int id;
+
+    public final int getId() {
+        return id;
+    }
+
+    public final String getTag() {
+        return tag;
+    }
+
+    public final FragmentActivity getActivity() {
+        return activity;
+    }
+
+    public Context getContext() {
+        return activity;
+    }
+
+    public final Bundle getArguments() {
+        return arguments;
+    }
+
+    public void setArguments(Bundle args) {
+        arguments = args;
+    }
+
+    public final boolean isAdded() {
+        return activity != null;
+    }
+
+    public final FragmentManager getFragmentManager() {
+        return activity != null ? activity.getSupportFragmentManager() : null;
+    }
+
+    public final String getString(int resId) {
+        return activity.getString(resId);
+    }
+
+    public void startActivity(Intent intent) {
+        activity.startActivity(intent);
+    }
+
+    public void onCreate(Bundle savedInstanceState) {
+    }
+
+    public void onResume() {
+    }
+
+    public void onSaveInstanceState(Bundle outState) {
+    }
+
+    public void onDestroyView() {
+    }
+
+    public void onDestroy() {
+    }
+
+    void attach(FragmentActivity activity, int id, String tag) {
+        this.activity = activity;
+        this.id = id;
+        this.tag = tag;
+    }
+
+    void detach() {
+        activity = null;
+    }
+}
@@ -0,0 +1,18 @@
+package android.support.v4.app;
+
+import android.app.Activity;
+
+public class FragmentActivity extends Activity {
+
+    private final FragmentManagerImpl fragmentManager = new FragmentManagerImpl(this);
+
+    public FragmentManager getSupportFragmentManager() {
+        return fragmentManager;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        fragmentManager.destroy();
+    }
+}
@@ -0,0 +1,10 @@
+package android.support.v4.app;
+
+public abstract class FragmentManager {
+
+    public abstract FragmentTransaction beginTransaction();
+
+    public abstract Fragment findFragmentById(int id);
+
+    public abstract Fragment findFragmentByTag(String tag);
+}
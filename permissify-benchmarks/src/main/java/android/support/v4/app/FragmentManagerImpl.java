@@ -0,0 +1,99 @@
+package android.support.v4.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fake of the support fragment manager. Transactions are executed right away when they are committed and fragments go through
+ * no lifecycle callbacks, as there are no views on the plain JVM. Dialogs of dialog fragments are created and shown when they are added.
+ */
+final class FragmentManagerImpl extends FragmentManager {
+
+    private final FragmentActivity activity;
+    private final List<Fragment> added = new ArrayList<>();
+    private int nextId = 1;
+
+    FragmentManagerImpl(FragmentActivity activity) {
+        this.activity = activity;
+    }
+
+    @Override
+    public FragmentTransaction beginTransaction() {
+        return new Transaction();
+    }
+
+    @Override
+    public Fragment findFragmentById(int id) {
+        for (Fragment fragment : added) {
+            if (fragment.getId() == id) {
+                return fragment;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public Fragment findFragmentByTag(String tag) {
+        for (int i = added.size() - 1; i >= 0; i--) {
+            if (tag != null && tag.equals(added.get(i).getTag())) {
+                return added.get(i);
+            }
+        }
+
+        return null;
+    }
+
+    void destroy() {
+        for (Fragment fragment : new ArrayList<>(added)) {
+            removeFragment(fragment);
+        }
+    }
+
+    private void addFragment(Fragment fragment, String tag) {
+        fragment.attach(activity, nextId++, tag);
+        added.add(fragment);
+
+        if (fragment instanceof DialogFragment) {
+            ((DialogFragment) fragment).showDialog();
+        }
+    }
+
+    private void removeFragment(Fragment fragment) {
+        if (added.remove(fragment)) {
+            fragment.detach();
+        }
+    }
+
+    private class Transaction extends FragmentTransaction {
+
+        private final List<Fragment> addedFragments = new ArrayList<>();
+        private final List<String> addedTags = new ArrayList<>();
+        private final List<Fragment> removedFragments = new ArrayList<>();
+
+        @Override
+        public FragmentTransaction add(Fragment fragment, String tag) {
+            addedFragments.add(fragment);
+            addedTags.add(tag);
+            return this;
+        }
+
+        @Override
+        public FragmentTransaction remove(Fragment fragment) {
+            removedFragments.add(fragment);
+            return this;
+        }
+
+        @Override
+        public int commitAllowingStateLoss() {
+            for (int i = 0; i < addedFragments.size(); i++) {
+                addFragment(addedFragments.get(i), addedTags.get(i));
+            }
+            for (Fragment fragment : removedFragments) {
+                removeFragment(fragment);
+            }
+
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package android.support.v4.app;
+
+public abstract class FragmentTransaction {
+
+    public abstract FragmentTransaction add(Fragment fragment, String tag);
+
+    public abstract FragmentTransaction remove(Fragment fragment);
+
+    public abstract int commitAllowingStateLoss();
+}
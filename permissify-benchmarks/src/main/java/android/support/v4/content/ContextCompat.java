@@ -0,0 +1,13 @@
+package android.support.v4.content;
+
+import android.content.Context;
+
+/**
+ * Fake of the support ContextCompat. It behaves like on API 23 and newer, where it asks the context.
+ */
+public class ContextCompat {
+
+    public static int checkSelfPermission(Context context, String permission) {
+        return context.checkSelfPermission(permission);
+    }
+}
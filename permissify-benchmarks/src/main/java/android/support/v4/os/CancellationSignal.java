@@ -0,0 +1,48 @@
+package android.support.v4.os;
+
+public final class CancellationSignal {
+
+    private boolean canceled;
+    private OnCancelListener onCancelListener;
+
+    public boolean isCanceled() {
+        synchronized (this) {
+            return canceled;
+        }
+    }
+
+    public void cancel() {
+        OnCancelListener listener;
+        synchronized (this) {
+            if (canceled) {
+                return;
+            }
+            canceled = true;
+            listener = onCancelListener;
+        }
+
+        if (listener != null) {
+            listener.onCancel();
+        }
+    }
+
+    public void setOnCancelListener(OnCancelListener listener) {
+        boolean notify;
+        synchronized (this) {
+            if (onCancelListener == listener) {
+                return;
+            }
+            onCancelListener = listener;
+            notify = canceled && listener != null;
+        }
+
+        if (notify) {
+            listener.onCancel();
+        }
+    }
+
+    public interface OnCancelListener {
+
+        void onCancel();
+    }
+}
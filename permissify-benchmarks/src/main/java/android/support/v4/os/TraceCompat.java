@@ -0,0 +1,13 @@
+package android.support.v4.os;
+
+public final class TraceCompat {
+
+    private TraceCompat() {
+    }
+
+    public static void beginSection(String sectionName) {
+    }
+
+    public static void endSection() {
+    }
+}
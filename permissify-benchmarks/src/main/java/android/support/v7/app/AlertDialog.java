@@ -0,0 +1,48 @@
+package android.support.v7.app;
+
+import android.app.Dialog;
+import android.content.Context;
+import android.content.DialogInterface;
+
+/**
+ * Fake of the appcompat AlertDialog. There are no views on the plain JVM, so the builder only creates the dialog.
+ */
+public class AlertDialog extends Dialog {
+
+    protected AlertDialog(Context context) {
+        super(context);
+    }
+
+    public static class Builder {
+
+        private final Context context;
+
+        public Builder(Context context) {
+            this.context = context;
+        }
+
+        public Builder(Context context, int themeResId) {
+            this(context);
+        }
+
+        public Builder setTitle(int titleId) {
+            return this;
+        }
+
+        public Builder setMessage(CharSequence message) {
+            return this;
+        }
+
+        public Builder setPositiveButton(int textId, DialogInterface.OnClickListener listener) {
+            return this;
+        }
+
+        public Builder setNegativeButton(int textId, DialogInterface.OnClickListener listener) {
+            return this;
+        }
+
+        public AlertDialog create() {
+            return new AlertDialog(context);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package android.support.v7.app;
+
+import android.support.v4.app.FragmentActivity;
+
+public class AppCompatActivity extends FragmentActivity {
+}
@@ -0,0 +1,22 @@
+package android.util;
+
+/**
+ * Fake of the framework Log. Benchmarks must not measure console output, so nothing is printed.
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int d(String tag, String msg) {
+        return 0;
+    }
+
+    public static int w(String tag, String msg) {
+        return 0;
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        return 0;
+    }
+}
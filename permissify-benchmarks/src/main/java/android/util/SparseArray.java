@@ -0,0 +1,82 @@
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * Fake of the framework SparseArray with the same layout: sorted keys and values in two parallel arrays, looked up with binary search.
+ */
+public class SparseArray<E> {
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    public SparseArray() {
+        this(10);
+    }
+
+    public SparseArray(int initialCapacity) {
+        keys = new int[Math.max(initialCapacity, 1)];
+        values = new Object[keys.length];
+    }
+
+    public E get(int key) {
+        return get(key, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int key, E valueIfKeyNotFound) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        return index >= 0 ? (E) values[index] : valueIfKeyNotFound;
+    }
+
+    public void put(int key, E value) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+
+        index = ~index;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    public void append(int key, E value) {
+        put(key, value);
+    }
+
+    public void remove(int key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            removeAt(index);
+        }
+    }
+
+    public void removeAt(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        values[size] = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int keyAt(int index) {
+        return keys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public E valueAt(int index) {
+        return (E) values[index];
+    }
+}
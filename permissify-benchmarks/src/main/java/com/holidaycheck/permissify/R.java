@@ -0,0 +1,19 @@
+package com.holidaycheck.permissify;
+
+/**
+ * Resource ids of the library. Android build generates them with aapt, on the plain JVM they only have to be distinct.
+ */
+public final class R {
+
+    public static final class string {
+
+        public static int permissify_go_to_settings = 0x7f060000;
+        public static int permissify_no_text_fallback = 0x7f060001;
+        public static int permissify_permission_rationale_title = 0x7f060002;
+    }
+
+    public static final class style {
+
+        public static int Theme_AppCompat_Light_Dialog_Alert = 0x7f080000;
+    }
+}
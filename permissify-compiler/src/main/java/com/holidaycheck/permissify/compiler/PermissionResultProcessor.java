@@ -0,0 +1,243 @@
+package com.holidaycheck.permissify.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates {@code <Host>_PermissionResultDispatcher} for every class with methods annotated with {@code @OnPermissionResult}.
+ * Generated dispatcher calls annotated methods from switch statements on call id and status, so no reflection is used when result is delivered.
+ */
+public class PermissionResultProcessor extends AbstractProcessor {
+
+    private static final String PACKAGE = "com.holidaycheck.permissify";
+    private static final String ANNOTATION = PACKAGE + ".OnPermissionResult";
+    private static final String STATUS = PACKAGE + ".PermissifyManager.CallRequestStatus";
+    private static final String DISPATCHER = PACKAGE + ".PermissionResultDispatcher";
+    private static final String DISPATCHER_SUFFIX = "_PermissionResultDispatcher";
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation == null || annotations.isEmpty()) {
+            return false;
+        }
+
+        List<String> allStatuses = getStatusConstants();
+        Map<TypeElement, List<ResultMethod>> methodsByHost = new LinkedHashMap<>();
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            ResultMethod method = parseMethod((ExecutableElement) element, allStatuses);
+            if (method == null) {
+                continue;
+            }
+
+            TypeElement host = (TypeElement) element.getEnclosingElement();
+            List<ResultMethod> methods = methodsByHost.get(host);
+            if (methods == null) {
+                methods = new ArrayList<>();
+                methodsByHost.put(host, methods);
+            }
+            methods.add(method);
+        }
+
+        for (Map.Entry<TypeElement, List<ResultMethod>> entry : methodsByHost.entrySet()) {
+            writeDispatcher(entry.getKey(), entry.getValue());
+        }
+
+        return true;
+    }
+
+    private ResultMethod parseMethod(ExecutableElement method, List<String> allStatuses) {
+        Element host = method.getEnclosingElement();
+
+        if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC)) {
+            error(method, "@OnPermissionResult method can't be private or static");
+            return null;
+        }
+
+        if (host.getKind() != ElementKind.CLASS || host.getModifiers().contains(Modifier.PRIVATE)) {
+            error(method, "@OnPermissionResult method has to be declared in a class that isn't private");
+            return null;
+        }
+
+        List<? extends VariableElement> parameters = method.getParameters();
+        boolean withStatus = parameters.size() == 1 && isStatus(parameters.get(0).asType());
+        if (!parameters.isEmpty() && !withStatus) {
+            error(method, "@OnPermissionResult method can take either no parameters or single CallRequestStatus parameter");
+            return null;
+        }
+
+        int callId = 0;
+        List<String> statuses = allStatuses;
+
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            if (!ANNOTATION.equals(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString())) {
+                continue;
+            }
+
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror.getElementValues().entrySet()) {
+                String name = value.getKey().getSimpleName().toString();
+
+                if ("callId".equals(name)) {
+                    callId = (Integer) value.getValue().getValue();
+                } else if ("status".equals(name)) {
+                    @SuppressWarnings("unchecked")
+                    List<? extends AnnotationValue> values = (List<? extends AnnotationValue>) value.getValue().getValue();
+                    if (!values.isEmpty()) {
+                        statuses = new ArrayList<>();
+                        for (AnnotationValue status : values) {
+                            statuses.add(((VariableElement) status.getValue()).getSimpleName().toString());
+                        }
+                    }
+                }
+            }
+        }
+
+        return new ResultMethod(method.getSimpleName().toString(), callId, statuses, withStatus);
+    }
+
+    private void writeDispatcher(TypeElement host, List<ResultMethod> methods) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(host);
+        String packageName = packageElement.getQualifiedName().toString();
+        String hostName = host.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(host).toString();
+        String dispatcherName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + DISPATCHER_SUFFIX;
+
+        // call id -> status -> methods, in declaration order
+        Map<Integer, Map<String, List<ResultMethod>>> table = new TreeMap<>();
+        for (ResultMethod method : methods) {
+            Map<String, List<ResultMethod>> byStatus = table.get(method.callId);
+            if (byStatus == null) {
+                byStatus = new LinkedHashMap<>();
+                table.put(method.callId, byStatus);
+            }
+
+            for (String status : method.statuses) {
+                List<ResultMethod> statusMethods = byStatus.get(status);
+                if (statusMethods == null) {
+                    statusMethods = new ArrayList<>();
+                    byStatus.put(status, statusMethods);
+                }
+                statusMethods.add(method);
+            }
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("// Generated by permissify-compiler. Do not modify!\n");
+        source.append("public final class ").append(dispatcherName).append(" implements ").append(DISPATCHER).append("<").append(hostName).append("> {\n\n");
+        source.append("    @Override\n");
+        source.append("    public boolean dispatch(").append(hostName).append(" host, int callId, ").append(STATUS).append(" status) {\n");
+        source.append("        switch (callId) {\n");
+
+        for (Map.Entry<Integer, Map<String, List<ResultMethod>>> callEntry : table.entrySet()) {
+            source.append("            case ").append(callEntry.getKey()).append(":\n");
+            source.append("                switch (status) {\n");
+
+            for (Map.Entry<String, List<ResultMethod>> statusEntry : callEntry.getValue().entrySet()) {
+                source.append("                    case ").append(statusEntry.getKey()).append(":\n");
+                for (ResultMethod method : statusEntry.getValue()) {
+                    source.append("                        host.").append(method.name).append(method.withStatus ? "(status);\n" : "();\n");
+                }
+                source.append("                        return true;\n");
+            }
+
+            source.append("                    default:\n");
+            source.append("                        return false;\n");
+            source.append("                }\n");
+        }
+
+        source.append("            default:\n");
+        source.append("                return false;\n");
+        source.append("        }\n");
+        source.append("    }\n");
+        source.append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? dispatcherName : packageName + "." + dispatcherName;
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, host);
+            Writer writer = file.openWriter();
+            try {
+                writer.write(source.toString());
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            error(host, "Unable to write permission result dispatcher: " + e.getMessage());
+        }
+    }
+
+    private List<String> getStatusConstants() {
+        List<String> constants = new ArrayList<>();
+        TypeElement status = processingEnv.getElementUtils().getTypeElement(STATUS);
+
+        if (status != null) {
+            for (Element element : status.getEnclosedElements()) {
+                if (element.getKind() == ElementKind.ENUM_CONSTANT) {
+                    constants.add(element.getSimpleName().toString());
+                }
+            }
+        }
+
+        return constants;
+    }
+
+    private boolean isStatus(TypeMirror type) {
+        TypeElement status = processingEnv.getElementUtils().getTypeElement(STATUS);
+        return status != null && processingEnv.getTypeUtils().isSameType(type, status.asType());
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static class ResultMethod {
+
+        final String name;
+        final int callId;
+        final List<String> statuses;
+        final boolean withStatus;
+
+        ResultMethod(String name, int callId, List<String> statuses, boolean withStatus) {
+            this.name = name;
+            this.callId = callId;
+            this.statuses = statuses;
+            this.withStatus = withStatus;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.holidaycheck.permissify.compiler;
+
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+/**
+ * Runs {@link PermissionResultProcessor} on sources of hosts with annotated methods. The library types that the processor looks up
+ * are compiled together with the hosts from simplified copies, status enum has only three constants to keep expected dispatchers short.
+ */
+public class PermissionResultProcessorTest {
+
+    private static final JavaFileObject ANNOTATION = JavaFileObjects.forSourceString("com.holidaycheck.permissify.OnPermissionResult", ""
+        + "package com.holidaycheck.permissify;\n"
+        + "public @interface OnPermissionResult {\n"
+        + "    int callId();\n"
+        + "    PermissifyManager.CallRequestStatus[] status() default {};\n"
+        + "}\n");
+
+    private static final JavaFileObject MANAGER = JavaFileObjects.forSourceString("com.holidaycheck.permissify.PermissifyManager", ""
+        + "package com.holidaycheck.permissify;\n"
+        + "public class PermissifyManager {\n"
+        + "    public enum CallRequestStatus {\n"
+        + "        PERMISSION_GRANTED, PERMISSION_DENIED_ONCE, PERMISSION_DENIED_FOREVER\n"
+        + "    }\n"
+        + "}\n");
+
+    private static final JavaFileObject DISPATCHER = JavaFileObjects.forSourceString("com.holidaycheck.permissify.PermissionResultDispatcher", ""
+        + "package com.holidaycheck.permissify;\n"
+        + "public interface PermissionResultDispatcher<T> {\n"
+        + "    boolean dispatch(T host, int callId, PermissifyManager.CallRequestStatus status);\n"
+        + "}\n");
+
+    @Test
+    public void generatesDispatcherThatSwitchesOnCallIdAndStatus() {
+        JavaFileObject host = JavaFileObjects.forSourceLines("test.Host",
+            "package test;",
+            "",
+            "import com.holidaycheck.permissify.OnPermissionResult;",
+            "import com.holidaycheck.permissify.PermissifyManager.CallRequestStatus;",
+            "",
+            "public class Host {",
+            "",
+            "    @OnPermissionResult(callId = 1, status = CallRequestStatus.PERMISSION_GRANTED)",
+            "    void onCameraGranted() {",
+            "    }",
+            "",
+            "    @OnPermissionResult(callId = 1, status = { CallRequestStatus.PERMISSION_DENIED_ONCE, CallRequestStatus.PERMISSION_DENIED_FOREVER })",
+            "    void onCameraDenied(CallRequestStatus status) {",
+            "    }",
+            "",
+            "    @OnPermissionResult(callId = 2)",
+            "    protected void onLocationResult(CallRequestStatus status) {",
+            "    }",
+            "",
+            "    @OnPermissionResult(callId = 2, status = CallRequestStatus.PERMISSION_GRANTED)",
+            "    public void onLocationGranted() {",
+            "    }",
+            "}");
+
+        JavaFileObject dispatcher = JavaFileObjects.forSourceLines("test.Host_PermissionResultDispatcher",
+            "package test;",
+            "",
+            "public final class Host_PermissionResultDispatcher implements com.holidaycheck.permissify.PermissionResultDispatcher<test.Host> {",
+            "",
+            "    @Override",
+            "    public boolean dispatch(test.Host host, int callId, com.holidaycheck.permissify.PermissifyManager.CallRequestStatus status) {",
+            "        switch (callId) {",
+            "            case 1:",
+            "                switch (status) {",
+            "                    case PERMISSION_GRANTED:",
+            "                        host.onCameraGranted();",
+            "                        return true;",
+            "                    case PERMISSION_DENIED_ONCE:",
+            "                        host.onCameraDenied(status);",
+            "                        return true;",
+            "                    case PERMISSION_DENIED_FOREVER:",
+            "                        host.onCameraDenied(status);",
+            "                        return true;",
+            "                    default:",
+            "                        return false;",
+            "                }",
+            "            case 2:",
+            "                switch (status) {",
+            "                    case PERMISSION_GRANTED:",
+            "                        host.onLocationResult(status);",
+            "                        host.onLocationGranted();",
+            "                        return true;",
+            "                    case PERMISSION_DENIED_ONCE:",
+            "                        host.onLocationResult(status);",
+            "                        return true;",
+            "                    case PERMISSION_DENIED_FOREVER:",
+            "                        host.onLocationResult(status);",
+            "                        return true;",
+            "                    default:",
+            "                        return false;",
+            "                }",
+            "            default:",
+            "                return false;",
+            "        }",
+            "    }",
+            "}");
+
+        assertAbout(javaSources())
+            .that(withLibrary(host))
+            .processedWith(new PermissionResultProcessor())
+            .compilesWithoutError()
+            .and()
+            .generatesSources(dispatcher);
+    }
+
+    @Test
+    public void generatesDispatcherForEveryHostInTheRound() {
+        JavaFileObject activity = JavaFileObjects.forSourceLines("test.TestActivity",
+            "package test;",
+            "",
+            "import com.holidaycheck.permissify.OnPermissionResult;",
+            "import com.holidaycheck.permissify.PermissifyManager.CallRequestStatus;",
+            "",
+            "public class TestActivity {",
+            "",
+            "    @OnPermissionResult(callId = 1, status = CallRequestStatus.PERMISSION_GRANTED)",
+            "    void onGranted() {",
+            "    }",
+            "",
+            "    public static class NestedFragment {",
+            "",
+            "        @OnPermissionResult(callId = 2, status = CallRequestStatus.PERMISSION_DENIED_FOREVER)",
+            "        void onDeniedForever(CallRequestStatus status) {",
+            "        }",
+            "    }",
+            "}");
+        JavaFileObject fragment = JavaFileObjects.forSourceLines("test.other.TestFragment",
+            "package test.other;",
+            "",
+            "import com.holidaycheck.permissify.OnPermissionResult;",
+            "import com.holidaycheck.permissify.PermissifyManager.CallRequestStatus;",
+            "",
+            "public class TestFragment {",
+            "",
+            "    @OnPermissionResult(callId = 3, status = CallRequestStatus.PERMISSION_DENIED_ONCE)",
+            "    void onDenied() {",
+            "    }",
+            "}");
+
+        assertAbout(javaSources())
+            .that(withLibrary(activity, fragment))
+            .processedWith(new PermissionResultProcessor())
+            .compilesWithoutError()
+            .and()
+            .generatesSources(
+                singleMethodDispatcher("test", "TestActivity_PermissionResultDispatcher", "test.TestActivity", 1, "PERMISSION_GRANTED", "onGranted()"),
+                singleMethodDispatcher("test", "TestActivity$NestedFragment_PermissionResultDispatcher", "test.TestActivity.NestedFragment", 2,
+                    "PERMISSION_DENIED_FOREVER", "onDeniedForever(status)"),
+                singleMethodDispatcher("test.other", "TestFragment_PermissionResultDispatcher", "test.other.TestFragment", 3, "PERMISSION_DENIED_ONCE",
+                    "onDenied()"));
+    }
+
+    @Test
+    public void rejectsPrivateMethod() {
+        JavaFileObject host = JavaFileObjects.forSourceLines("test.Host",
+            "package test;",
+            "",
+            "import com.holidaycheck.permissify.OnPermissionResult;",
+            "",
+            "public class Host {",
+            "",
+            "    @OnPermissionResult(callId = 1)",
+            "    private void onResult() {",
+            "    }",
+            "}");
+
+        assertAbout(javaSources())
+            .that(withLibrary(host))
+            .processedWith(new PermissionResultProcessor())
+            .failsToCompile()
+            .withErrorContaining("@OnPermissionResult method can't be private or static")
+            .in(host)
+            .onLine(8);
+    }
+
+    @Test
+    public void rejectsStaticMethod() {
+        JavaFileObject host = JavaFileObjects.forSourceLines("test.Host",
+            "package test;",
+            "",
+            "import com.holidaycheck.permissify.OnPermissionResult;",
+            "",
+            "public class Host {",
+            "",
+            "    @OnPermissionResult(callId = 1)",
+            "    static void onResult() {",
+            "    }",
+            "}");
+
+        assertAbout(javaSources())
+            .that(withLibrary(host))
+            .processedWith(new PermissionResultProcessor())
+            .failsToCompile()
+            .withErrorContaining("@OnPermissionResult method can't be private or static")
+            .in(host)
+            .onLine(8);
+    }
+
+    @Test
+    public void rejectsMethodInPrivateClass() {
+        JavaFileObject host = JavaFileObjects.forSourceLines("test.Host",
+            "package test;",
+            "",
+            "import com.holidaycheck.permissify.OnPermissionResult;",
+            "",
+            "public class Host {",
+            "",
+            "    private static class Nested {",
+            "",
+            "        @OnPermissionResult(callId = 1)",
+            "        void onResult() {",
+            "        }",
+            "    }",
+            "}");
+
+        assertAbout(javaSources())
+            .that(withLibrary(host))
+            .processedWith(new PermissionResultProcessor())
+            .failsToCompile()
+            .withErrorContaining("@OnPermissionResult method has to be declared in a class that isn't private")
+            .in(host)
+            .onLine(10);
+    }
+
+    @Test
+    public void rejectsParameterOtherThanStatus() {
+        JavaFileObject host = JavaFileObjects.forSourceLines("test.Host",
+            "package test;",
+            "",
+            "import com.holidaycheck.permissify.OnPermissionResult;",
+            "",
+            "public class Host {",
+            "",
+            "    @OnPermissionResult(callId = 1)",
+            "    void onResult(int callId) {",
+            "    }",
+            "}");
+
+        assertAbout(javaSources())
+            .that(withLibrary(host))
+            .processedWith(new PermissionResultProcessor())
+            .failsToCompile()
+            .withErrorContaining("@OnPermissionResult method can take either no parameters or single CallRequestStatus parameter")
+            .in(host)
+            .onLine(8);
+    }
+
+    @Test
+    public void rejectsStatusWithAnotherParameter() {
+        JavaFileObject host = JavaFileObjects.forSourceLines("test.Host",
+            "package test;",
+            "",
+            "import com.holidaycheck.permissify.OnPermissionResult;",
+            "import com.holidaycheck.permissify.PermissifyManager.CallRequestStatus;",
+            "",
+            "public class Host {",
+            "",
+            "    @OnPermissionResult(callId = 1)",
+            "    void onResult(int callId, CallRequestStatus status) {",
+            "    }",
+            "}");
+
+        assertAbout(javaSources())
+            .that(withLibrary(host))
+            .processedWith(new PermissionResultProcessor())
+            .failsToCompile()
+            .withErrorContaining("@OnPermissionResult method can take either no parameters or single CallRequestStatus parameter")
+            .in(host)
+            .onLine(9);
+    }
+
+    private static List<JavaFileObject> withLibrary(JavaFileObject... sources) {
+        List<JavaFileObject> allSources = new ArrayList<>(Arrays.asList(ANNOTATION, MANAGER, DISPATCHER));
+        allSources.addAll(Arrays.asList(sources));
+        return allSources;
+    }
+
+    private static JavaFileObject singleMethodDispatcher(String packageName, String dispatcherName, String hostName, int callId, String status,
+                                                         String call) {
+        return JavaFileObjects.forSourceLines(packageName + "." + dispatcherName,
+            "package " + packageName + ";",
+            "",
+            "public final class " + dispatcherName + " implements com.holidaycheck.permissify.PermissionResultDispatcher<" + hostName + "> {",
+            "",
+            "    @Override",
+            "    public boolean dispatch(" + hostName + " host, int callId, com.holidaycheck.permissify.PermissifyManager.CallRequestStatus status) {",
+            "        switch (callId) {",
+            "            case " + callId + ":",
+            "                switch (status) {",
+            "                    case " + status + ":",
+            "                        host." + call + ";",
+            "                        return true;",
+            "                    default:",
+            "                        return false;",
+            "                }",
+            "            default:",
+            "                return false;",
+            "        }",
+            "    }",
+            "}");
+    }
+}
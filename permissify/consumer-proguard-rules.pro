@@ -0,0 +1,7 @@
+# Rules that are applied to apps that use Permissify
+
+# Dispatchers generated by permissify-compiler are looked up by name of the class with @OnPermissionResult methods
+-keep class **_PermissionResultDispatcher { <init>(); }
+-keepclasseswithmembernames class * {
+    @com.holidaycheck.permissify.OnPermissionResult <methods>;
+}
@@ -0,0 +1,33 @@
+package com.holidaycheck.permissify;
+
+import android.app.Activity;
+import android.content.pm.PackageManager;
+import android.support.v4.app.ActivityCompat;
+import android.support.v4.content.ContextCompat;
+
+/**
+ * Default platform that uses the Android permission system. Results are delivered to the activity, which passes them to PermissifyManager.
+ */
+class AndroidPermissionPlatform implements PermissionPlatform {
+
+    private final Activity activity;
+
+    AndroidPermissionPlatform(Activity activity) {
+        this.activity = activity;
+    }
+
+    @Override
+    public boolean isGranted(String permission) {
+        return ContextCompat.checkSelfPermission(activity, permission) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    @Override
+    public boolean shouldShowRationale(String permission) {
+        return ActivityCompat.shouldShowRequestPermissionRationale(activity, permission);
+    }
+
+    @Override
+    public void requestPermissions(String[] permissions, int requestCode, ResultListener listener) {
+        ActivityCompat.requestPermissions(activity, permissions, requestCode);
+    }
+}
@@ -0,0 +1,39 @@
+package com.holidaycheck.permissify;
+
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process wide registry that maps stable tokens of {@link PermissifyFragment} to their current instances.
+ * Token is kept in the fragment saved state, so results of permission calls find the recreated fragment without asking FragmentManager.
+ * Fragments are held weakly, so a fragment that wasn't unregistered can still be garbage collected.
+ */
+class CallbackRegistry {
+
+    private static final ConcurrentHashMap<String, WeakReference<Fragment>> sCallbacks = new ConcurrentHashMap<>();
+
+    private CallbackRegistry() {
+    }
+
+    static void register(String token, Fragment fragment) {
+        sCallbacks.put(token, new WeakReference<>(fragment));
+    }
+
+    static void unregister(String token, Fragment fragment) {
+        WeakReference<Fragment> reference = sCallbacks.get(token);
+
+        // recreated fragment could have already registered itself with the same token
+        if (reference != null && (reference.get() == fragment || reference.get() == null)) {
+            sCallbacks.remove(token, reference);
+        }
+    }
+
+    @Nullable
+    static Fragment get(String token) {
+        WeakReference<Fragment> reference = sCallbacks.get(token);
+        return reference != null ? reference.get() : null;
+    }
+}
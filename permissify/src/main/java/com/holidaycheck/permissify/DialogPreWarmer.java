@@ -0,0 +1,95 @@
+package com.holidaycheck.permissify;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v7.app.AlertDialog;
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Warms up the process for the first Rationale & Deny dialog: loads dialog classes on a background thread and creates an alert dialog
+ * with the default theme that is thrown away once the main thread is idle. That fills class, view constructor and resource caches,
+ * nothing else is kept, so the first dialog that is shown is still built and inflated from scratch.
+ */
+class DialogPreWarmer {
+
+    private static final String TAG = "Permissify";
+    private static final String PRE_WARM_THREAD_NAME = "Permissify-DialogPreWarm";
+
+    private static final String[] DIALOG_CLASSES = {
+        "com.holidaycheck.permissify.PermissionRationaleDialogFragment",
+        "com.holidaycheck.permissify.PermissionDeniedInfoDialogFragment",
+        "android.support.v7.app.AlertDialog",
+        "android.support.v7.app.AlertDialog$Builder",
+        "android.support.v7.app.AlertController"
+    };
+
+    private static final AtomicBoolean sPreWarmed = new AtomicBoolean();
+
+    private DialogPreWarmer() {
+    }
+
+    static void preWarm(Context context) {
+        if (!sPreWarmed.compareAndSet(false, true)) {
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loadDialogClasses();
+            }
+        }, PRE_WARM_THREAD_NAME);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+                    @Override
+                    public boolean queueIdle() {
+                        createDialog(appContext);
+                        return false;
+                    }
+                });
+            }
+        });
+    }
+
+    private static void loadDialogClasses() {
+        ClassLoader classLoader = DialogPreWarmer.class.getClassLoader();
+
+        for (String className : DIALOG_CLASSES) {
+            try {
+                Class.forName(className, true, classLoader);
+            } catch (ClassNotFoundException e) {
+                Log.w(TAG, "Unable to pre-load dialog class " + className);
+            }
+        }
+    }
+
+    /**
+     * Creates alert dialog like the default ones, without showing it. The theme is set explicitly, because app theme doesn't have to be AppCompat.
+     */
+    static void createDialog(Context appContext) {
+        AlertDialog dialog = new AlertDialog.Builder(appContext, R.style.Theme_AppCompat_Light_Dialog_Alert)
+            .setTitle(R.string.permissify_permission_rationale_title)
+            .setMessage("")
+            .setPositiveButton(android.R.string.ok, null)
+            .setNegativeButton(android.R.string.cancel, null)
+            .create();
+
+        // older platforms can only create dialog content by showing the dialog, there only the classes and the theme are warmed up
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            dialog.create();
+        }
+    }
+
+}
@@ -0,0 +1,247 @@
+package com.holidaycheck.permissify;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.annotation.Nullable;
+import android.support.v4.app.DialogFragment;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentActivity;
+import android.support.v4.app.FragmentManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Shows Rationale & Deny dialogs of one activity one after another. Dialogs that are requested while another one is on screen are queued,
+ * instead of being dropped. Queued dialogs of the same type and permission group are collapsed into one:
+ * collapsed rationale dialogs are confirmed together, collapsed deny dialogs are shown only once.
+ */
+class DialogScheduler {
+
+    private static final String TAG = "Permissify";
+    private static final String SAVE_INSTANCE_KEY_QUEUE = "dialogSchedulerQueue";
+    private static final String SAVE_INSTANCE_KEY_CURRENT_DIALOG = "dialogSchedulerCurrentDialog";
+    private static final int[] NO_CALL_IDS = new int[0];
+
+    static final int TYPE_RATIONALE = 0;
+    static final int TYPE_DENY = 1;
+
+    private final FragmentActivity activity;
+    private ArrayList<ScheduledDialog> queue = new ArrayList<>();
+    private ScheduledDialog currentDialog;
+
+    DialogScheduler(FragmentActivity activity) {
+        this.activity = activity;
+    }
+
+    /**
+     * @return true - dialog is shown now or queued, false - it was collapsed into already scheduled dialog
+     */
+    boolean scheduleRationaleDialog(PermissifyManager.PendingPermissionCall pendingCall, @Nullable String permissionGroup) {
+        return schedule(new ScheduledDialog(TYPE_RATIONALE, permissionGroup, pendingCall));
+    }
+
+    /**
+     * @return true - dialog is shown now or queued, false - it was collapsed into already scheduled dialog
+     */
+    boolean scheduleDenyDialog(PermissifyManager.PendingPermissionCall pendingCall, @Nullable String permissionGroup) {
+        return schedule(new ScheduledDialog(TYPE_DENY, permissionGroup, pendingCall));
+    }
+
+    /**
+     * Gets ids of calls whose rationale dialogs were collapsed into rationale dialog of given call, so they can be confirmed together
+     */
+    int[] takeCollapsedCallIds(int callId) {
+        if (currentDialog == null || currentDialog.type != TYPE_RATIONALE || currentDialog.pendingCall.getCallId() != callId) {
+            return NO_CALL_IDS;
+        }
+
+        int[] collapsedCallIds = currentDialog.collapsedCallIds;
+        currentDialog.collapsedCallIds = NO_CALL_IDS;
+
+        return collapsedCallIds;
+    }
+
+    /**
+     * Removes rationale dialog of given call, either from the queue or from the screen, because the call was finished before it was confirmed.
+     * Dialog on the screen stays the current one until it is dismissed, so the next dialog is shown afterwards as usual.
+     *
+     * @return ids of calls whose rationale dialogs were collapsed into the removed dialog, so they can be scheduled again
+     */
+    int[] cancel(int callId) {
+        int[] collapsedCallIds = NO_CALL_IDS;
+
+        for (int i = queue.size() - 1; i >= 0; i--) {
+            ScheduledDialog queuedDialog = queue.get(i);
+            if (queuedDialog.isRationaleOf(callId)) {
+                queue.remove(i);
+                collapsedCallIds = queuedDialog.collapsedCallIds;
+            } else {
+                queuedDialog.removeCollapsedCallId(callId);
+            }
+        }
+
+        if (currentDialog != null && currentDialog.isRationaleOf(callId)) {
+            collapsedCallIds = currentDialog.collapsedCallIds;
+            currentDialog.collapsedCallIds = NO_CALL_IDS;
+            currentDialog.cancelled = true;
+
+            // dialog that is not added yet dismisses itself when it is resumed, see PermissionRationaleDialogFragment
+            Fragment dialogFragment = activity.getSupportFragmentManager().findFragmentByTag(TAG);
+            if (dialogFragment instanceof DialogFragment) {
+                ((DialogFragment) dialogFragment).dismissAllowingStateLoss();
+            }
+        } else if (currentDialog != null) {
+            currentDialog.removeCollapsedCallId(callId);
+        }
+
+        return collapsedCallIds;
+    }
+
+    void onDialogDismissed() {
+        currentDialog = null;
+
+        if (!queue.isEmpty()) {
+            show(queue.remove(0));
+        }
+    }
+
+    void onSaveInstanceState(Bundle outState) {
+        // nothing is saved in the common case of no dialog, so rotations don't pay for it
+        if (currentDialog != null || !queue.isEmpty()) {
+            outState.putParcelableArrayList(SAVE_INSTANCE_KEY_QUEUE, queue);
+            outState.putParcelable(SAVE_INSTANCE_KEY_CURRENT_DIALOG, currentDialog);
+        }
+    }
+
+    void onRestoreInstanceState(Bundle savedInstanceState) {
+        if (savedInstanceState.containsKey(SAVE_INSTANCE_KEY_QUEUE)) {
+            ArrayList<ScheduledDialog> savedQueue = savedInstanceState.getParcelableArrayList(SAVE_INSTANCE_KEY_QUEUE);
+            queue = savedQueue != null ? savedQueue : new ArrayList<ScheduledDialog>();
+            currentDialog = savedInstanceState.getParcelable(SAVE_INSTANCE_KEY_CURRENT_DIALOG);
+
+            // dialog fragments are already restored at this point, so it is safe to check whether the current one survived
+            if (currentDialog != null && activity.getSupportFragmentManager().findFragmentByTag(TAG) == null) {
+                onDialogDismissed();
+            }
+        }
+    }
+
+    private boolean schedule(ScheduledDialog dialog) {
+        if (currentDialog != null && currentDialog.collapse(dialog)) {
+            return false;
+        }
+
+        for (ScheduledDialog queuedDialog : queue) {
+            if (queuedDialog.collapse(dialog)) {
+                return false;
+            }
+        }
+
+        if (currentDialog == null) {
+            show(dialog);
+        } else {
+            queue.add(dialog);
+        }
+
+        return true;
+    }
+
+    private void show(ScheduledDialog dialog) {
+        FragmentManager fragmentManager = activity.getSupportFragmentManager();
+        currentDialog = dialog;
+
+        if (dialog.type == TYPE_RATIONALE) {
+            PermissionRationaleDialogFragment.showDialog(fragmentManager, dialog.pendingCall);
+        } else {
+            PermissionDeniedInfoDialogFragment.showDialog(fragmentManager, dialog.pendingCall);
+        }
+    }
+
+    static class ScheduledDialog implements Parcelable {
+
+        private final int type;
+        private final String permissionGroup;
+        private final PermissifyManager.PendingPermissionCall pendingCall;
+        private int[] collapsedCallIds = NO_CALL_IDS;
+        private boolean cancelled;
+
+        ScheduledDialog(int type, @Nullable String permissionGroup, PermissifyManager.PendingPermissionCall pendingCall) {
+            this.type = type;
+            this.permissionGroup = permissionGroup;
+            this.pendingCall = pendingCall;
+        }
+
+        private ScheduledDialog(Parcel in) {
+            this.type = in.readInt();
+            this.permissionGroup = in.readString();
+            this.pendingCall = PermissifyManager.PendingPermissionCall.CREATOR.createFromParcel(in);
+            this.collapsedCallIds = in.createIntArray();
+            this.cancelled = in.readInt() != 0;
+        }
+
+        boolean isRationaleOf(int callId) {
+            return type == TYPE_RATIONALE && !cancelled && pendingCall.getCallId() == callId;
+        }
+
+        void removeCollapsedCallId(int callId) {
+            for (int i = 0; i < collapsedCallIds.length; i++) {
+                if (collapsedCallIds[i] == callId) {
+                    int[] callIds = new int[collapsedCallIds.length - 1];
+                    System.arraycopy(collapsedCallIds, 0, callIds, 0, i);
+                    System.arraycopy(collapsedCallIds, i + 1, callIds, i, callIds.length - i);
+                    collapsedCallIds = callIds;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Collapses given dialog into this one if both have the same type and permission group
+         *
+         * @return true - dialog was collapsed and it shouldn't be shown on its own
+         */
+        boolean collapse(ScheduledDialog dialog) {
+            if (cancelled || type != dialog.type || permissionGroup == null || !permissionGroup.equals(dialog.permissionGroup)) {
+                return false;
+            }
+
+            if (type == TYPE_RATIONALE) {
+                collapsedCallIds = Arrays.copyOf(collapsedCallIds, collapsedCallIds.length + 1);
+                collapsedCallIds[collapsedCallIds.length - 1] = dialog.pendingCall.getCallId();
+            }
+
+            Log.d(TAG, "Dialog for permission group " + permissionGroup + " is already scheduled - collapsing show command");
+            return true;
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeInt(type);
+            dest.writeString(permissionGroup);
+            pendingCall.writeToParcel(dest, flags);
+            dest.writeIntArray(collapsedCallIds);
+            dest.writeInt(cancelled ? 1 : 0);
+        }
+
+        public static final Creator<ScheduledDialog> CREATOR = new Creator<ScheduledDialog>() {
+            @Override
+            public ScheduledDialog createFromParcel(Parcel in) {
+                return new ScheduledDialog(in);
+            }
+
+            @Override
+            public ScheduledDialog[] newArray(int size) {
+                return new ScheduledDialog[size];
+            }
+        };
+    }
+
+}
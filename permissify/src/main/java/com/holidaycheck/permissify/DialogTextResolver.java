@@ -0,0 +1,29 @@
+package com.holidaycheck.permissify;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Resolves default dialog texts directly by permission name. It is usually generated at build time from declarative mapping
+ * by gradle/permissify-dialog-texts.gradle script, so the texts don't need to be put in a map at startup.
+ */
+public interface DialogTextResolver {
+
+    /**
+     * Gets dialog texts of permission
+     *
+     * @param permission - one of the {@link android.Manifest.permission}
+     * @return texts of permission or null if there are none, then texts of its permission group are used
+     */
+    @Nullable
+    DialogText getDialogText(String permission);
+
+    /**
+     * Gets dialog texts of permission group. It is used for permissions without their own texts, with the group that the system reports for them.
+     *
+     * @param permissionGroup - one of the {@link android.Manifest.permission_group}
+     * @return texts of permission group or null if there are none, then texts of {@link PermissifyConfig.Builder#withDefaultTextForPermissions}
+     * or fallback texts are used
+     */
+    @Nullable
+    DialogText getGroupDialogText(String permissionGroup);
+}
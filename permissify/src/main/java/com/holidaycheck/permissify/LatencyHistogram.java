@@ -0,0 +1,121 @@
+package com.holidaycheck.permissify;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non negative values with log-linear buckets. Every power of two range is split into 8 linear sub buckets,
+ * so reported values are never more than 12.5% above the recorded ones.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalSum = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Records single value, negative values are recorded as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts.incrementAndGet(getBucketIndex(value));
+        totalCount.incrementAndGet();
+        totalSum.addAndGet(value);
+
+        long max = maxValue.get();
+        while (value > max && !maxValue.compareAndSet(max, value)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * Gets number of recorded values
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Gets mean of recorded values or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalSum.get() / count;
+    }
+
+    /**
+     * Gets the highest recorded value
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * Gets value below which given percent of recorded values fall
+     *
+     * @param percentile - percentile in range 0 - 100
+     * @return upper bound of the bucket that contains the percentile or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        long threshold = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+        long cumulativeCount = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulativeCount += counts.get(i);
+            if (cumulativeCount >= threshold) {
+                return Math.min(getBucketUpperBound(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Clears all recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalSum.set(0);
+        maxValue.set(0);
+    }
+
+    private static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long getBucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.holidaycheck.permissify;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks method of {@link PermissifyActivity} or fragment that should be called with result of permission call, so it doesn't have to be
+ * dispatched by hand in {@link PermissifyManager.Callback#onCallWithPermissionResult}. Method can't be private and it can take either no parameters
+ * or single {@link PermissifyManager.CallRequestStatus} parameter.
+ *
+ * Only results of {@link PermissifyManager#callWithPermission} calls are dispatched to annotated methods. Results of
+ * {@link PermissifyManager#callWithPermissions} have a status for each permission, so they are delivered only to
+ * {@link PermissifyManager.MultiplePermissionsCallback}, and asynchronous requests complete their {@link PermissionFuture}.
+ *
+ * Dispatcher is generated by permissify-compiler annotation processor, so it has to be added to the project, e.g. with
+ * {@code apt 'com.holidaycheck:permissify-compiler:<version>'}.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface OnPermissionResult {
+
+    /**
+     * Id of the permission call
+     */
+    int callId();
+
+    /**
+     * Statuses that the method is called with, every status by default
+     */
+    PermissifyManager.CallRequestStatus[] status() default {};
+}
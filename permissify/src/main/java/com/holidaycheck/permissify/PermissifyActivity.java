@@ -4,10 +4,14 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.v7.app.AppCompatActivity;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.Map;
+
 /**
  * Base activity for an application that uses Permissify library. It provides PermissifyManager that handles various permission request states.
  */
-public class PermissifyActivity extends AppCompatActivity implements PermissifyManager.Callback {
+public class PermissifyActivity extends AppCompatActivity implements PermissifyManager.Callback, PermissifyManager.MultiplePermissionsCallback {
 
     private PermissifyManager permissionManager;
 
@@ -18,6 +22,20 @@ public class PermissifyActivity extends AppCompatActivity implements PermissifyM
         permissionManager = new PermissifyManager(this);
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        permissionManager.getLifecycleHandler().onResume();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        permissionManager.getLifecycleHandler().onDestroy();
+    }
+
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
@@ -39,11 +57,26 @@ public class PermissifyActivity extends AppCompatActivity implements PermissifyM
         permissionManager.getLifecycleHandler().onRequestPermissionsResult(requestCode, permissions, grantResults);
     }
 
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+
+        PermissifyFlightRecorder flightRecorder = PermissifyConfig.get().getFlightRecorder();
+        if (flightRecorder != null) {
+            flightRecorder.dump(prefix, writer);
+        }
+    }
+
     @Override
     public void onCallWithPermissionResult(int callId, PermissifyManager.CallRequestStatus status) {
 
     }
 
+    @Override
+    public void onCallWithPermissionsResult(int callId, Map<String, PermissifyManager.CallRequestStatus> statuses) {
+
+    }
+
     /**
      * Gets PermissifyManager that is associated with this activity
      *
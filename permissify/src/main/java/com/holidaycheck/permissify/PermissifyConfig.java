@@ -1,33 +1,77 @@
 package com.holidaycheck.permissify;
 
+import android.app.Application;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.support.annotation.Nullable;
 import android.support.v7.app.AlertDialog;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Config for Permissify Library
+ *
+ * Config is immutable once it is built, so it can be read from any thread. It can be replaced at runtime, e.g. to change dialog texts after locale change,
+ * with {@link #initDefault} or {@link #replace}. Permission calls that are already in progress keep using texts of the config they were started with.
  */
 public class PermissifyConfig {
 
-    private static PermissifyConfig sInstance;
+    private static final AtomicReference<PermissifyConfig> sInstance = new AtomicReference<>();
+    private static final int DEFAULT_MAX_PENDING_CALLS = 32;
 
-    private PermissionCallOptions defaultPermissionCallOptions;
-    private HashMap<String, DialogText> defaultTextForPermissions;
-    private DialogText permissionTextFallback;
-    private AlertDialogFactory rationaleDialogFactory;
-    private AlertDialogFactory denyDialogFactory;
+    private final PermissionCallOptions defaultPermissionCallOptions;
+    private final Map<String, DialogText> defaultTextForPermissions;
+    private final DialogText permissionTextFallback;
+    private final AlertDialogFactory rationaleDialogFactory;
+    private final AlertDialogFactory denyDialogFactory;
+    private final PermissifyMetrics metrics;
+    private final boolean dialogPreWarming;
+    private final Executor resultExecutor;
+    private final boolean permissionHistory;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final PermissifyTracer tracer;
+    private final PermissionPlatform permissionPlatform;
+    private final PermissifyFlightRecorder flightRecorder;
+    private final DialogTextResolver dialogTextResolver;
+    private final int maxPendingCalls;
 
-    static PermissifyConfig get() {
-        if (sInstance == null) {
+    /**
+     * Gets config that is currently used by Permissify
+     *
+     * @throws RuntimeException when Permissify is not initialized
+     */
+    public static PermissifyConfig get() {
+        PermissifyConfig instance = sInstance.get();
+
+        if (instance == null) {
             throw new RuntimeException("Permissify is not initialized");
         }
 
-        return sInstance;
+        return instance;
     }
 
-    private PermissifyConfig() {
+    private PermissifyConfig(Builder builder) {
+        this.defaultPermissionCallOptions = builder.defaultPermissionCallOptions;
+        this.defaultTextForPermissions = builder.defaultTextForPermissions;
+        this.permissionTextFallback = builder.permissionTextFallback;
+        this.rationaleDialogFactory = builder.rationaleDialogFactory;
+        this.denyDialogFactory = builder.denyDialogFactory;
+        this.metrics = builder.metrics;
+        this.dialogPreWarming = builder.dialogPreWarming;
+        this.resultExecutor = builder.resultExecutor;
+        this.permissionHistory = builder.permissionHistory;
+        this.initialBackoffMillis = builder.initialBackoffMillis;
+        this.maxBackoffMillis = builder.maxBackoffMillis;
+        this.tracer = builder.tracer;
+        this.permissionPlatform = builder.permissionPlatform;
+        this.flightRecorder = builder.flightRecorder;
+        this.dialogTextResolver = builder.dialogTextResolver;
+        this.maxPendingCalls = builder.maxPendingCalls;
     }
 
     /**
@@ -35,7 +79,49 @@ public class PermissifyConfig {
      */
     public static class Builder {
 
-        private PermissifyConfig instance = new PermissifyConfig();
+        private PermissionCallOptions defaultPermissionCallOptions;
+        private Map<String, DialogText> defaultTextForPermissions;
+        private DialogText permissionTextFallback;
+        private AlertDialogFactory rationaleDialogFactory;
+        private AlertDialogFactory denyDialogFactory;
+        private PermissifyMetrics metrics;
+        private boolean dialogPreWarming;
+        private Executor resultExecutor;
+        private boolean permissionHistory;
+        private long initialBackoffMillis;
+        private long maxBackoffMillis;
+        private PermissifyTracer tracer;
+        private PermissionPlatform permissionPlatform;
+        private PermissifyFlightRecorder flightRecorder;
+        private DialogTextResolver dialogTextResolver;
+        private int maxPendingCalls = DEFAULT_MAX_PENDING_CALLS;
+
+        public Builder() {
+        }
+
+        /**
+         * Creates builder that starts with all values of existing config, so only the changed ones have to be set
+         *
+         * @param config - config to copy values from
+         */
+        public Builder(PermissifyConfig config) {
+            this.defaultPermissionCallOptions = config.defaultPermissionCallOptions;
+            this.defaultTextForPermissions = config.defaultTextForPermissions;
+            this.permissionTextFallback = config.permissionTextFallback;
+            this.rationaleDialogFactory = config.rationaleDialogFactory;
+            this.denyDialogFactory = config.denyDialogFactory;
+            this.metrics = config.metrics;
+            this.dialogPreWarming = config.dialogPreWarming;
+            this.resultExecutor = config.resultExecutor;
+            this.permissionHistory = config.permissionHistory;
+            this.initialBackoffMillis = config.initialBackoffMillis;
+            this.maxBackoffMillis = config.maxBackoffMillis;
+            this.tracer = config.tracer;
+            this.permissionPlatform = config.permissionPlatform;
+            this.flightRecorder = config.flightRecorder;
+            this.dialogTextResolver = config.dialogTextResolver;
+            this.maxPendingCalls = config.maxPendingCalls;
+        }
 
         /**
          * Sets options that are used by default when requesting for permission
@@ -43,15 +129,25 @@ public class PermissifyConfig {
          * @param callOptions
          */
         public Builder withDefaultPermissionCallOptions(PermissionCallOptions callOptions) {
-            instance.defaultPermissionCallOptions = callOptions;
+            this.defaultPermissionCallOptions = callOptions;
             return this;
         }
 
         /**
-         * Sets map that matches every permission group {@link android.Manifest.permission_group} that is used in the app with texts that is used in dialogs
+         * Sets map that matches every permission group {@link android.Manifest.permission_group} that is used in the app with texts that is used in dialogs.
+         * The map is copied when the config is built.
          */
-        public Builder withDefaultTextForPermissions(HashMap<String, DialogText> wording) {
-            instance.defaultTextForPermissions = wording;
+        public Builder withDefaultTextForPermissions(Map<String, DialogText> wording) {
+            this.defaultTextForPermissions = wording;
+            return this;
+        }
+
+        /**
+         * Sets resolver that finds dialog texts by permission name, usually generated at build time by gradle/permissify-dialog-texts.gradle script.
+         * It takes precedence over map {@link #withDefaultTextForPermissions}.
+         */
+        public Builder withDialogTextResolver(DialogTextResolver resolver) {
+            this.dialogTextResolver = resolver;
             return this;
         }
 
@@ -59,7 +155,7 @@ public class PermissifyConfig {
          * Sets dialog texts that will be used in case no match in map {@link #withDefaultTextForPermissions}
          */
         public Builder withPermissionTextFallback(DialogText dialogText) {
-            instance.permissionTextFallback = dialogText;
+            this.permissionTextFallback = dialogText;
             return this;
         }
 
@@ -67,7 +163,7 @@ public class PermissifyConfig {
          * Sets custom AlertDialogFactory that can be used to customize Rationale dialog
          */
         public Builder withDialogRationaleDialogFactory(AlertDialogFactory factory) {
-            instance.rationaleDialogFactory = factory;
+            this.rationaleDialogFactory = factory;
             return this;
         }
 
@@ -75,7 +171,104 @@ public class PermissifyConfig {
          * Sets custom AlertDialogFactory that can be used to customize Deny dialog
          */
         public Builder withDenyDialogFactory(AlertDialogFactory factory) {
-            instance.denyDialogFactory = factory;
+            this.denyDialogFactory = factory;
+            return this;
+        }
+
+        /**
+         * Sets listener that is notified about timings and outcomes of permission requests. Nothing is measured when it is not set.
+         */
+        public Builder withMetrics(PermissifyMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Sets whether or not Rationale & Deny dialogs should be prepared ahead of time, so showing them for the first time doesn't drop frames.
+         * It works only with {@link PermissifyConfig#initDefault(Context, PermissifyConfig)}.
+         *
+         * @param enabled - true - load dialog classes and create a throwaway dialog after initialization
+         */
+        public Builder withDialogPreWarming(boolean enabled) {
+            this.dialogPreWarming = enabled;
+            return this;
+        }
+
+        /**
+         * Sets executor that permission results are delivered on by default, e.g. a main thread Handler that posts them after
+         * {@link android.app.Activity#onRequestPermissionsResult} returns. Without it results are delivered synchronously.
+         * It can be overridden for single call with {@link PermissionCallOptions.Builder#withResultExecutor}.
+         */
+        public Builder withResultExecutor(Executor executor) {
+            this.resultExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Sets whether or not outcomes of permission requests should be remembered across app restarts. When permission was denied forever,
+         * next call for it is finished immediately with {@link PermissifyManager.CallRequestStatus#PERMISSION_DENIED_FOREVER} without asking the system.
+         * It works only with {@link PermissifyConfig#initDefault(Context, PermissifyConfig)}.
+         *
+         * @param enabled - true - keep history of permission requests in SharedPreferences
+         */
+        public Builder withPermissionHistory(boolean enabled) {
+            this.permissionHistory = enabled;
+            return this;
+        }
+
+        /**
+         * Sets exponential backoff of permission requests. After the user denies permission, calls for it are finished with
+         * {@link PermissifyManager.CallRequestStatus#REQUEST_THROTTLED} without showing any dialog, until backoff time passes.
+         * Backoff time is doubled with every next denial. By default there is no backoff.
+         *
+         * @param initialBackoffMillis - backoff time after the first denial, 0 disables backoff
+         * @param maxBackoffMillis     - max backoff time
+         */
+        public Builder withRequestBackoff(long initialBackoffMillis, long maxBackoffMillis) {
+            if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis) {
+                throw new IllegalArgumentException("Backoff times have to satisfy 0 <= initialBackoffMillis <= maxBackoffMillis");
+            }
+
+            this.initialBackoffMillis = initialBackoffMillis;
+            this.maxBackoffMillis = maxBackoffMillis;
+            return this;
+        }
+
+        /**
+         * Sets tracer that receives trace sections of permission flows. By default they are written with {@link android.os.Trace}.
+         */
+        public Builder withTracer(PermissifyTracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+
+        /**
+         * Sets permission service that is used instead of the Android permission system, e.g. {@link SimulatedPermissionPlatform}.
+         * It is used by activities created after the config is initialized.
+         */
+        public Builder withPermissionPlatform(PermissionPlatform platform) {
+            this.permissionPlatform = platform;
+            return this;
+        }
+
+        /**
+         * Sets flight recorder that keeps the last transitions of permission calls, so they can be dumped later. Nothing is recorded when it is not set.
+         */
+        public Builder withFlightRecorder(PermissifyFlightRecorder flightRecorder) {
+            this.flightRecorder = flightRecorder;
+            return this;
+        }
+
+        /**
+         * Sets how many calls can wait for rationale or system request at the same time, 32 by default. When the limit is reached,
+         * the oldest call that doesn't wait for system request is evicted and finished with {@link PermissifyManager.CallRequestStatus#REQUEST_EVICTED}.
+         */
+        public Builder withMaxPendingCalls(int maxPendingCalls) {
+            if (maxPendingCalls < 1) {
+                throw new IllegalArgumentException("At least one pending call has to be allowed");
+            }
+
+            this.maxPendingCalls = maxPendingCalls;
             return this;
         }
 
@@ -83,36 +276,80 @@ public class PermissifyConfig {
          * Builds instance of PermissifyConfig
          */
         public PermissifyConfig build() {
-            if (instance.denyDialogFactory == null) {
-                instance.denyDialogFactory = PermissionDeniedInfoDialogFragment.getDefaultDialogFactory();
+            if (denyDialogFactory == null) {
+                denyDialogFactory = PermissionDeniedInfoDialogFragment.getDefaultDialogFactory();
             }
 
-            if (instance.rationaleDialogFactory == null) {
-                instance.rationaleDialogFactory = PermissionRationaleDialogFragment.getDefaultDialogFactory();
+            if (rationaleDialogFactory == null) {
+                rationaleDialogFactory = PermissionRationaleDialogFragment.getDefaultDialogFactory();
             }
 
-            if (instance.defaultPermissionCallOptions == null) {
-                instance.defaultPermissionCallOptions = new PermissionCallOptions.Builder()
+            if (defaultPermissionCallOptions == null) {
+                defaultPermissionCallOptions = new PermissionCallOptions.Builder()
                     .withDefaultDenyDialog(true)
                     .withDefaultRationaleDialog(true)
                     .build();
             }
 
-            if (instance.permissionTextFallback == null) {
-                instance.permissionTextFallback = new DialogText(R.string.permissify_no_text_fallback, R.string.permissify_no_text_fallback);
+            if (permissionTextFallback == null) {
+                permissionTextFallback = new DialogText(R.string.permissify_no_text_fallback, R.string.permissify_no_text_fallback);
             }
 
-            return instance;
+            if (tracer == null) {
+                tracer = SystemTracer.INSTANCE;
+            }
+
+            defaultTextForPermissions = defaultTextForPermissions != null ?
+                Collections.unmodifiableMap(new HashMap<>(defaultTextForPermissions)) : Collections.<String, DialogText>emptyMap();
+
+            return new PermissifyConfig(this);
         }
     }
 
     /**
-     * Initializes Permissify config
+     * Initializes Permissify config. It can be called again to replace the config at runtime.
      *
      * @param permissifyConfig - instance of PermissifyConfig that is returned from {@link Builder}
      */
     public static void initDefault(PermissifyConfig permissifyConfig) {
-        sInstance = permissifyConfig;
+        sInstance.set(permissifyConfig);
+    }
+
+    /**
+     * Initializes Permissify config and loads metadata of permissions requested in the app manifest on a background thread,
+     * so permission calls don't need to query PackageManager. Dialogs are pre-warmed here if it is enabled with {@link Builder#withDialogPreWarming}
+     * and permission history is loaded if it is enabled with {@link Builder#withPermissionHistory}.
+     * When the context is the application, {@link PermissifyCoordinator} is installed as well.
+     *
+     * @param context          - app context
+     * @param permissifyConfig - instance of PermissifyConfig that is returned from {@link Builder}
+     */
+    public static void initDefault(Context context, PermissifyConfig permissifyConfig) {
+        initDefault(permissifyConfig);
+        PermissionInfoCache.get().warmUp(context);
+
+        if (permissifyConfig.dialogPreWarming) {
+            DialogPreWarmer.preWarm(context);
+        }
+
+        if (permissifyConfig.permissionHistory) {
+            PermissionHistory.get().load(context);
+        }
+
+        if (context instanceof Application) {
+            PermissifyCoordinator.get().install((Application) context);
+        }
+    }
+
+    /**
+     * Atomically replaces current config, but only if it wasn't replaced by someone else in the meantime
+     *
+     * @param expectedConfig - config that is expected to be current, usually the one that the new config was built from
+     * @param newConfig      - instance of PermissifyConfig that is returned from {@link Builder}
+     * @return true - config was replaced, false - current config is different than expected and it wasn't replaced
+     */
+    public static boolean replace(PermissifyConfig expectedConfig, PermissifyConfig newConfig) {
+        return sInstance.compareAndSet(expectedConfig, newConfig);
     }
 
     PermissionCallOptions getDefaultPermissionCallOptions() {
@@ -123,10 +360,15 @@ public class PermissifyConfig {
         return permissionTextFallback;
     }
 
-    HashMap<String, DialogText> getDefaultTextForPermissions() {
+    Map<String, DialogText> getDefaultTextForPermissions() {
         return defaultTextForPermissions;
     }
 
+    @Nullable
+    DialogTextResolver getDialogTextResolver() {
+        return dialogTextResolver;
+    }
+
     AlertDialogFactory getRationaleDialogFactory() {
         return rationaleDialogFactory;
     }
@@ -135,6 +377,46 @@ public class PermissifyConfig {
         return denyDialogFactory;
     }
 
+    @Nullable
+    Executor getResultExecutor() {
+        return resultExecutor;
+    }
+
+    boolean isPermissionHistoryEnabled() {
+        return permissionHistory;
+    }
+
+    long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    PermissifyTracer getTracer() {
+        return tracer;
+    }
+
+    @Nullable
+    PermissionPlatform getPermissionPlatform() {
+        return permissionPlatform;
+    }
+
+    @Nullable
+    PermissifyFlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    int getMaxPendingCalls() {
+        return maxPendingCalls;
+    }
+
+    @Nullable
+    PermissifyMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Class that produces instances of AlertDialogs that are used as a content for Rationale & Deny dialogs {@link com.holidaycheck.permissify.DialogText}
      */
@@ -0,0 +1,291 @@
+package com.holidaycheck.permissify;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.content.ContextCompat;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Process wide coordinator of permission requests from components that don't have {@link PermissifyActivity}, e.g. services or background jobs.
+ * Requests are queued while no PermissifyActivity is in the foreground and when one resumes, all queued permissions are requested in a single call,
+ * so the same permission is never prompted twice and no activity has to be launched just to ask for it.
+ *
+ * Coordinator is installed by {@link PermissifyConfig#initDefault(Context, PermissifyConfig)} when it is called with the application context.
+ */
+public class PermissifyCoordinator {
+
+    private static final PermissifyCoordinator sInstance = new PermissifyCoordinator();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<QueuedRequest> queuedRequests = new ArrayList<>();
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private Context appContext;
+    private WeakReference<PermissifyActivity> resumedActivity;
+
+    public static PermissifyCoordinator get() {
+        return sInstance;
+    }
+
+    private PermissifyCoordinator() {
+    }
+
+    /**
+     * Starts tracking activities of the application. It is safe to call it more than once.
+     *
+     * @param application - application that requests are coordinated for
+     */
+    public synchronized void install(Application application) {
+        if (appContext != null) {
+            return;
+        }
+
+        appContext = application;
+        application.registerActivityLifecycleCallbacks(new ActivityTracker());
+    }
+
+    /**
+     * Requests permission using default PermissionCallOptions. It can be called from any thread.
+     * Already granted permission completes the future right away, otherwise the request waits until PermissifyActivity is resumed.
+     * Rationale is always shown with the default rationale dialog, as there is nobody to handle it in custom way.
+     * Call id of the future is {@link PermissionFuture#NO_CALL_ID} until the request is made together with other queued requests.
+     * If that activity finishes before the result comes, the future completes with {@link PermissifyManager.CallRequestStatus#REQUEST_CANCELLED}.
+     *
+     * @param permission - one of the {@link android.Manifest.permission}
+     * @param executor   - executor that the result is delivered on
+     * @return future that completes with the status of this permission request
+     * @throws IllegalStateException if the coordinator is not installed, as no activity would ever pick the request up
+     */
+    public PermissionFuture request(String permission, Executor executor) {
+        synchronized (this) {
+            if (appContext == null) {
+                throw new IllegalStateException("PermissifyCoordinator is not installed. Call PermissifyConfig.initDefault with the application context");
+            }
+        }
+
+        PermissionFuture future = new PermissionFuture(PermissionFuture.NO_CALL_ID, executor);
+
+        if (isGranted(permission)) {
+            PermissifyManager.recordGrantedCall(future.getCallId(), permission);
+            future.complete(PermissifyManager.CallRequestStatus.PERMISSION_GRANTED);
+            return future;
+        }
+
+        final QueuedRequest queuedRequest = new QueuedRequest(permission, future);
+        future.setCancelAction(new Runnable() {
+            @Override
+            public void run() {
+                onRequestCancelled(queuedRequest);
+            }
+        });
+
+        synchronized (queuedRequests) {
+            if (queuedRequests.isEmpty()) {
+                mainHandler.post(flushRunnable);
+            }
+            queuedRequests.add(queuedRequest);
+        }
+
+        return future;
+    }
+
+    private boolean isGranted(String permission) {
+        PermissionPlatform platform = PermissifyConfig.get().getPermissionPlatform();
+        if (platform != null) {
+            return platform.isGranted(permission);
+        }
+
+        Context context;
+        synchronized (this) {
+            context = appContext;
+        }
+
+        return ContextCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    /**
+     * Requests all queued permissions with the resumed activity. It is called on the main thread.
+     */
+    private void flush() {
+        PermissifyActivity activity = resumedActivity != null ? resumedActivity.get() : null;
+        if (activity == null || activity.getPermissifyManager() == null) {
+            return;
+        }
+
+        final List<QueuedRequest> requests;
+        synchronized (queuedRequests) {
+            if (queuedRequests.isEmpty()) {
+                return;
+            }
+
+            requests = new ArrayList<>(queuedRequests);
+            queuedRequests.clear();
+        }
+
+        final List<QueuedRequest> batch = new ArrayList<>(requests.size());
+        Set<String> permissions = new LinkedHashSet<>();
+        for (QueuedRequest request : requests) {
+            if (!request.future.isDone()) {
+                batch.add(request);
+                permissions.add(request.permission);
+            }
+        }
+
+        if (permissions.isEmpty()) {
+            return;
+        }
+
+        synchronized (queuedRequests) {
+            for (QueuedRequest request : batch) {
+                request.batch = batch;
+            }
+        }
+
+        // futures complete only once, so rationale can't be left to the caller
+        PermissionCallOptions options = PermissifyConfig.get().getDefaultPermissionCallOptions().copy();
+        options.setShowRationaleDialog(true);
+
+        int batchId = activity.getPermissifyManager().requestBatch(permissions.toArray(new String[permissions.size()]), options,
+                new PermissifyManager.MultiplePermissionsCallback() {
+                    @Override
+                    public void onCallWithPermissionsResult(int callId, Map<String, PermissifyManager.CallRequestStatus> statuses) {
+                        synchronized (queuedRequests) {
+                            // id of finished batch can be given to another request
+                            for (QueuedRequest request : batch) {
+                                request.batch = null;
+                                request.batchId = 0;
+                            }
+                        }
+
+                        for (QueuedRequest request : batch) {
+                            PermissifyManager.CallRequestStatus status = statuses.get(request.permission);
+                            if (status != null) {
+                                request.future.complete(status);
+                            }
+                        }
+                    }
+                });
+
+        synchronized (queuedRequests) {
+            // batch could have finished right away, e.g. when all its permissions were granted in the meantime
+            if (batch.get(0).batch == null) {
+                return;
+            }
+
+            // futures could have been cancelled while the batch was being started
+            boolean cancelled = isCancelled(batch);
+            for (QueuedRequest request : batch) {
+                request.batchId = cancelled ? 0 : batchId;
+                request.future.setCallId(batchId);
+            }
+
+            if (!cancelled) {
+                return;
+            }
+        }
+
+        PermissifyManager.cancelAsyncCall(batchId);
+    }
+
+    /**
+     * Drops request whose future was cancelled. Once futures of all requests of a batch are cancelled, the batch is cancelled as well.
+     */
+    private void onRequestCancelled(QueuedRequest request) {
+        int batchId;
+        synchronized (queuedRequests) {
+            if (queuedRequests.remove(request) || request.batchId == 0 || !isCancelled(request.batch)) {
+                return;
+            }
+
+            batchId = request.batchId;
+            // batch is cancelled only once, its id can be given to another request right after that
+            for (QueuedRequest batchRequest : request.batch) {
+                batchRequest.batchId = 0;
+            }
+        }
+
+        PermissifyManager.cancelAsyncCall(batchId);
+    }
+
+    private static boolean isCancelled(List<QueuedRequest> batch) {
+        for (QueuedRequest request : batch) {
+            if (!request.future.isCancelled()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private class ActivityTracker implements Application.ActivityLifecycleCallbacks {
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+            if (activity instanceof PermissifyActivity) {
+                resumedActivity = new WeakReference<>((PermissifyActivity) activity);
+                // let the activity finish resuming before the system dialog is shown
+                mainHandler.post(flushRunnable);
+            }
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+            if (resumedActivity != null && resumedActivity.get() == activity) {
+                resumedActivity = null;
+                mainHandler.removeCallbacks(flushRunnable);
+            }
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+        }
+    }
+
+    private static class QueuedRequest {
+
+        final String permission;
+        final PermissionFuture future;
+
+        // requests that were requested together with this one and id of their call, guarded by queuedRequests
+        List<QueuedRequest> batch;
+        int batchId;
+
+        QueuedRequest(String permission, PermissionFuture future) {
+            this.permission = permission;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.holidaycheck.permissify;
+
+import android.os.SystemClock;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size lock-free ring buffer of the last transitions of permission calls. It is registered with {@link PermissifyConfig.Builder#withFlightRecorder}
+ * and it can be dumped at any time, e.g. when the user reports that permission dialog didn't show up.
+ * {@link PermissifyActivity} adds it to the output of {@code adb shell dumpsys activity <activity>}.
+ */
+public class PermissifyFlightRecorder {
+
+    /**
+     * Transition of permission call
+     */
+    public enum EventType {
+        CALL_STARTED, CALL_COALESCED, CALL_THROTTLED, CALL_SKIPPED_DENIED_FOREVER, RATIONALE_SHOWN, DIALOG_COLLAPSED, SYSTEM_REQUEST_ISSUED,
+        RESULT_RECEIVED, DENY_DIALOG_SHOWN, RESULT_DELIVERED, CALLBACK_DROPPED, CALL_CANCELLED, CALL_TIMED_OUT, CALL_EVICTED
+    }
+
+    private final AtomicReferenceArray<Event> events;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * @param capacity - number of the last events that are kept
+     */
+    public PermissifyFlightRecorder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity has to be positive");
+        }
+
+        this.events = new AtomicReferenceArray<>(capacity);
+    }
+
+    void record(EventType type, int callId, String[] permissions) {
+        long sequence = nextSequence.getAndIncrement();
+        events.set((int) (sequence % events.length()), new Event(sequence, SystemClock.elapsedRealtime(), type, callId, permissions));
+    }
+
+    /**
+     * Gets recorded events from the oldest to the newest
+     */
+    public List<Event> getEvents() {
+        long endSequence = nextSequence.get();
+        long startSequence = Math.max(0, endSequence - events.length());
+        List<Event> result = new ArrayList<>((int) (endSequence - startSequence));
+
+        for (long sequence = startSequence; sequence < endSequence; sequence++) {
+            Event event = events.get((int) (sequence % events.length()));
+
+            // slot could have been overwritten by a newer event or not written yet
+            if (event != null && event.sequence == sequence) {
+                result.add(event);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes recorded events from the oldest to the newest
+     *
+     * @param prefix - prefix of every line
+     * @param writer - writer that events are written to
+     */
+    public void dump(String prefix, PrintWriter writer) {
+        List<Event> recordedEvents = getEvents();
+        writer.print(prefix);
+        writer.println("Permissify flight recorder (" + recordedEvents.size() + " events, uptime " + SystemClock.elapsedRealtime() + "ms):");
+
+        for (Event event : recordedEvents) {
+            writer.print(prefix);
+            writer.print("  ");
+            writer.println(event);
+        }
+    }
+
+    /**
+     * Single transition of permission call
+     */
+    public static class Event {
+
+        private final long sequence;
+        private final long timestamp;
+        private final EventType type;
+        private final int callId;
+        private final String[] permissions;
+
+        Event(long sequence, long timestamp, EventType type, int callId, String[] permissions) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.type = type;
+            this.callId = callId;
+            this.permissions = permissions;
+        }
+
+        /**
+         * Gets time of the event in {@link SystemClock#elapsedRealtime()} base
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public EventType getType() {
+            return type;
+        }
+
+        public int getCallId() {
+            return callId;
+        }
+
+        public String[] getPermissions() {
+            return permissions.clone();
+        }
+
+        @Override
+        public String toString() {
+            return timestamp + "ms " + type + " callId=" + callId + " permissions=" + Arrays.toString(permissions);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.holidaycheck.permissify;
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Base fragment for requesting permissions with Permissify library. Results of permission calls are delivered to it by a stable token
+ * that survives recreation, so it works also for nested fragments and for fragments that share a container. Other fragments
+ * are looked up by their id in the activity FragmentManager.
+ */
+public class PermissifyFragment extends Fragment implements PermissifyManager.Callback, PermissifyManager.MultiplePermissionsCallback {
+
+    private static final String SAVE_INSTANCE_KEY_TOKEN = "permissifyToken";
+
+    private String permissifyToken;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        permissifyToken = savedInstanceState != null ? savedInstanceState.getString(SAVE_INSTANCE_KEY_TOKEN) : null;
+        if (permissifyToken == null) {
+            permissifyToken = UUID.randomUUID().toString();
+        }
+        CallbackRegistry.register(permissifyToken, this);
+    }
+
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+
+        outState.putString(SAVE_INSTANCE_KEY_TOKEN, permissifyToken);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+
+        CallbackRegistry.unregister(permissifyToken, this);
+    }
+
+    @Override
+    public void onCallWithPermissionResult(int callId, PermissifyManager.CallRequestStatus status) {
+
+    }
+
+    @Override
+    public void onCallWithPermissionsResult(int callId, Map<String, PermissifyManager.CallRequestStatus> statuses) {
+
+    }
+
+    /**
+     * Gets PermissifyManager of the activity that this fragment is attached to
+     *
+     * @return PermissifyManager
+     */
+    public PermissifyManager getPermissifyManager() {
+        return ((PermissifyActivity) getActivity()).getPermissifyManager();
+    }
+
+    String getPermissifyToken() {
+        return permissifyToken;
+    }
+}
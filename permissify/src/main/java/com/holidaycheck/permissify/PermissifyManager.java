@@ -3,15 +3,28 @@ package com.holidaycheck.permissify;
 import android.app.Activity;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.support.annotation.Nullable;
 import android.support.v4.app.ActivityCompat;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentActivity;
-import android.support.v4.content.ContextCompat;
+import android.support.v4.os.CancellationSignal;
 import android.util.Log;
+import android.util.SparseArray;
 
-import java.io.Serializable;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manager that handles various permission request states
@@ -20,61 +33,126 @@ public class PermissifyManager {
 
     private static final String SAVE_INSTANCE_KEY_PENDING_PERMISSION_CALL = "pendingPermissionCalls";
     private static final String TAG = "Permissify";
+    private static final String ASYNC_SECTION_REQUEST = "Permissify#request";
+    private static final String[] NO_PERMISSIONS = new String[0];
 
     /**
-     * Status that indicates the current state of permission request
+     * Asynchronous requests use call ids from the top of the request code range that is accepted by {@link ActivityCompat#requestPermissions},
+     * so calls with callback can't use them
+     */
+    private static final int ASYNC_CALL_ID_MIN = 0xF000;
+    private static final int ASYNC_CALL_ID_MASK = 0x0FFF;
+    private static final AtomicInteger sAsyncCallCounter = new AtomicInteger();
+
+    /**
+     * Result targets of asynchronous requests (futures and batches of {@link PermissifyCoordinator}), kept process-wide so they are completed
+     * also after the activity is recreated
+     */
+    private static final SparseArray<Object> sAsyncResultTargets = new SparseArray<>();
+
+    /**
+     * Single element permission arrays shared by every call for the same permission
+     */
+    private static final ConcurrentHashMap<String, String[]> sSinglePermissionArrays = new ConcurrentHashMap<>();
+
+    /**
+     * Managers of activities that are not destroyed yet, in the order they were created. It is accessed only on the main thread.
+     */
+    private static final List<PermissifyManager> sLiveManagers = new ArrayList<>();
+
+    /**
+     * Status that indicates the current state of permission request.
+     * {@link #REQUEST_THROTTLED} is used for missing permissions that were denied recently, when backoff is set with {@link PermissifyConfig.Builder#withRequestBackoff}.
+     * {@link #REQUEST_CANCELLED} is used for missing permissions of calls that were cancelled, {@link #REQUEST_TIMED_OUT} for missing permissions
+     * of calls that didn't finish within {@link PermissionCallOptions.Builder#withTimeout} and {@link #REQUEST_EVICTED} for missing permissions
+     * of calls that were evicted when there were too many pending calls, see {@link PermissifyConfig.Builder#withMaxPendingCalls}.
      */
     public enum CallRequestStatus {
-        PERMISSION_GRANTED, PERMISSION_DENIED_ONCE, PERMISSION_DENIED_FOREVER, SHOW_PERMISSION_RATIONALE
+        PERMISSION_GRANTED, PERMISSION_DENIED_ONCE, PERMISSION_DENIED_FOREVER, SHOW_PERMISSION_RATIONALE, REQUEST_THROTTLED, REQUEST_CANCELLED, REQUEST_TIMED_OUT,
+        REQUEST_EVICTED
     }
 
     private PermissifyActivity activity;
     private LifecycleHandler lifecycleHandler = new LifecycleHandler();
     private PermissionCallDefaultInitializer callOptionsInitializer = new PermissionCallDefaultInitializer();
-    private HashMap<Integer, PendingPermissionCall> pendingPermissionCalls = new HashMap<>();
-    private PermissifyConfig permissifyConfig;
+    private PermissionCallTable<PendingPermissionCall> callTable;
+    private PermissionPlatform platform;
+    private PermissionGrantState grantState;
+    private final List<PermissionStateObserver> stateObservers = new ArrayList<>();
+    private final PermissionStateObserver stateObserverDispatcher = new PermissionStateObserver() {
+        @Override
+        public void onPermissionStateChanged(String permission, boolean granted) {
+            // iterating backwards lets observers remove themselves when they are notified
+            for (int i = stateObservers.size() - 1; i >= 0; i--) {
+                if (i < stateObservers.size()) {
+                    stateObservers.get(i).onPermissionStateChanged(permission, granted);
+                }
+            }
+        }
+    };
+    private DialogScheduler dialogScheduler;
+    private Handler mainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * Set on the main thread, read also by results that are delivered on executor
+     */
+    private volatile boolean destroyed;
 
     PermissifyManager(PermissifyActivity activity) {
         this.activity = activity;
-        this.permissifyConfig = PermissifyConfig.get();
+        PermissionPlatform configPlatform = PermissifyConfig.get().getPermissionPlatform();
+        this.platform = configPlatform != null ? configPlatform : new AndroidPermissionPlatform(activity);
+        this.grantState = new PermissionGrantState(activity, platform);
+        this.callTable = new PermissionCallTable<>(platform, new MainThreadScheduler(), PermissifyConfig.get().getMaxPendingCalls(), new CallTableListener());
+        this.dialogScheduler = new DialogScheduler(activity);
+        sLiveManagers.add(this);
     }
 
     /**
      * Requests permission using default PermissionCallOptions
      *
      * @param fragment   - fragment that implements Callback interface and where result will be delivered
-     * @param callId     - unique identifier that is associated with this permission call
+     * @param callId     - unique identifier that is associated with this permission call, lower than 0xF000
      * @param permission - one of the {@link android.Manifest.permission}
      */
     public <T extends Fragment & Callback> void callWithPermission(T fragment, int callId, String permission) {
-        callWithPermission(fragment, callId, permission, permissifyConfig.getDefaultPermissionCallOptions());
+        callWithPermission(fragment, callId, permission, PermissifyConfig.get().getDefaultPermissionCallOptions());
     }
 
     /**
      * Requests permission using default PermissionCallOptions
      *
      * @param activity   - PermissifyActivity
-     * @param callId     - unique identifier that is associated with this permission call
+     * @param callId     - unique identifier that is associated with this permission call, lower than 0xF000
      * @param permission - one of the {@link android.Manifest.permission}
      */
     public void callWithPermission(PermissifyActivity activity, int callId, String permission) {
-        callWithPermission(activity, callId, permission, permissifyConfig.getDefaultPermissionCallOptions());
+        callWithPermission(activity, callId, permission, PermissifyConfig.get().getDefaultPermissionCallOptions());
     }
 
     /**
      * Requests permission using custom PermissionCallOptions
      *
      * @param fragment              - fragment that implements Callback interface and where result will be delivered
-     * @param callId                - unique identifier that is associated with this permission call
+     * @param callId                - unique identifier that is associated with this permission call, lower than 0xF000
      * @param permission            - one of the {@link android.Manifest.permission}
      * @param permissionCallOptions - custom permission call options
      */
     public <T extends Fragment & Callback> void callWithPermission(T fragment, int callId, String permission, PermissionCallOptions permissionCallOptions) {
+        checkCallId(callId);
+
+        if (getResultExecutor(permissionCallOptions) == null && hasPermission(permission)) {
+            reportGranted(permission);
+            recordGrantedCall(callId, permission);
+            dispatchToCallback(fragment, callId, CallRequestStatus.PERMISSION_GRANTED);
+            return;
+        }
+
         PermissionCallInternalData data = new PermissionCallInternalData();
         data.requestFromFragment = true;
         data.fragmentId = fragment.getId();
+        data.callbackToken = fragment instanceof PermissifyFragment ? ((PermissifyFragment) fragment).getPermissifyToken() : null;
         data.callId = callId;
-        data.permission = permission;
+        data.permissions = getSinglePermissionArray(permission);
 
         PendingPermissionCall pendingPermissionCall = new PendingPermissionCall(permissionCallOptions, data);
         doCallWithPermission(fragment.getActivity(), fragment, pendingPermissionCall);
@@ -84,20 +162,261 @@ public class PermissifyManager {
      * Requests permission using custom PermissionCallOptions
      *
      * @param activity              - PermissifyActivity
-     * @param callId                - unique identifier that is associated with this permission call
+     * @param callId                - unique identifier that is associated with this permission call, lower than 0xF000
      * @param permission            - one of the {@link android.Manifest.permission}
      * @param permissionCallOptions - custom permission call options
      */
     public void callWithPermission(PermissifyActivity activity, int callId, String permission, PermissionCallOptions permissionCallOptions) {
+        checkCallId(callId);
+
+        if (getResultExecutor(permissionCallOptions) == null && hasPermission(permission)) {
+            reportGranted(permission);
+            recordGrantedCall(callId, permission);
+            dispatchToCallback(activity, callId, CallRequestStatus.PERMISSION_GRANTED);
+            return;
+        }
+
         PermissionCallInternalData data = new PermissionCallInternalData();
         data.requestFromFragment = false;
         data.callId = callId;
-        data.permission = permission;
+        data.permissions = getSinglePermissionArray(permission);
 
         PendingPermissionCall pendingPermissionCall = new PendingPermissionCall(permissionCallOptions, data);
         doCallWithPermission(activity, activity, pendingPermissionCall);
     }
 
+    /**
+     * Requests several permissions at once using default PermissionCallOptions. Only one system request is made for the whole set.
+     *
+     * @param fragment    - fragment that implements MultiplePermissionsCallback interface and where result will be delivered
+     * @param callId      - unique identifier that is associated with this permission call, lower than 0xF000
+     * @param permissions - one or more of the {@link android.Manifest.permission}
+     */
+    public <T extends Fragment & MultiplePermissionsCallback> void callWithPermissions(T fragment, int callId, String... permissions) {
+        callWithPermissions(fragment, callId, PermissifyConfig.get().getDefaultPermissionCallOptions(), permissions);
+    }
+
+    /**
+     * Requests several permissions at once using default PermissionCallOptions. Only one system request is made for the whole set.
+     *
+     * @param activity    - PermissifyActivity
+     * @param callId      - unique identifier that is associated with this permission call, lower than 0xF000
+     * @param permissions - one or more of the {@link android.Manifest.permission}
+     */
+    public void callWithPermissions(PermissifyActivity activity, int callId, String... permissions) {
+        callWithPermissions(activity, callId, PermissifyConfig.get().getDefaultPermissionCallOptions(), permissions);
+    }
+
+    /**
+     * Requests several permissions at once using custom PermissionCallOptions. Only one system request is made for the whole set
+     * and rationale dialog is shown at most once.
+     *
+     * @param fragment              - fragment that implements MultiplePermissionsCallback interface and where result will be delivered
+     * @param callId                - unique identifier that is associated with this permission call, lower than 0xF000
+     * @param permissionCallOptions - custom permission call options
+     * @param permissions           - one or more of the {@link android.Manifest.permission}
+     */
+    public <T extends Fragment & MultiplePermissionsCallback> void callWithPermissions(T fragment, int callId, PermissionCallOptions permissionCallOptions, String... permissions) {
+        checkCallId(callId);
+
+        PermissionCallInternalData data = new PermissionCallInternalData();
+        data.requestFromFragment = true;
+        data.fragmentId = fragment.getId();
+        data.callbackToken = fragment instanceof PermissifyFragment ? ((PermissifyFragment) fragment).getPermissifyToken() : null;
+        data.callId = callId;
+        data.permissions = checkPermissions(permissions);
+        data.multiplePermissions = true;
+
+        PendingPermissionCall pendingPermissionCall = new PendingPermissionCall(permissionCallOptions, data);
+        doCallWithPermission(fragment.getActivity(), fragment, pendingPermissionCall);
+    }
+
+    /**
+     * Requests several permissions at once using custom PermissionCallOptions. Only one system request is made for the whole set
+     * and rationale dialog is shown at most once.
+     *
+     * @param activity              - PermissifyActivity
+     * @param callId                - unique identifier that is associated with this permission call, lower than 0xF000
+     * @param permissionCallOptions - custom permission call options
+     * @param permissions           - one or more of the {@link android.Manifest.permission}
+     */
+    public void callWithPermissions(PermissifyActivity activity, int callId, PermissionCallOptions permissionCallOptions, String... permissions) {
+        checkCallId(callId);
+
+        PermissionCallInternalData data = new PermissionCallInternalData();
+        data.requestFromFragment = false;
+        data.callId = callId;
+        data.permissions = checkPermissions(permissions);
+        data.multiplePermissions = true;
+
+        PendingPermissionCall pendingPermissionCall = new PendingPermissionCall(permissionCallOptions, data);
+        doCallWithPermission(activity, activity, pendingPermissionCall);
+    }
+
+    /**
+     * Requests permission asynchronously using default PermissionCallOptions. It can be called from any thread.
+     *
+     * @param permission - one of the {@link android.Manifest.permission}
+     * @param executor   - executor that the result is delivered on
+     * @return future that completes with the status of this permission call
+     * @throws IllegalArgumentException if default options enable rationale without default rationale dialog
+     */
+    public PermissionFuture requestAsync(String permission, Executor executor) {
+        return requestAsync(permission, PermissifyConfig.get().getDefaultPermissionCallOptions(), executor);
+    }
+
+    /**
+     * Requests permission asynchronously using custom PermissionCallOptions. It can be called from any thread.
+     * Already granted permission completes the future right away without switching to the main thread.
+     * Rationale can't be handled in custom way, as the future completes only once, so options have to either use default rationale dialog
+     * or disable rationale.
+     *
+     * @param permission            - one of the {@link android.Manifest.permission}
+     * @param permissionCallOptions - custom permission call options
+     * @param executor              - executor that the result is delivered on
+     * @return future that completes with the status of this permission call
+     * @throws IllegalArgumentException if options enable rationale without default rationale dialog
+     */
+    public PermissionFuture requestAsync(String permission, PermissionCallOptions permissionCallOptions, Executor executor) {
+        if (permissionCallOptions.isRationaleEnabled() && !permissionCallOptions.showRationaleDialog()) {
+            throw new IllegalArgumentException("Asynchronous request can't handle rationale in custom way. Use default rationale dialog or disable rationale");
+        }
+
+        PermissionFuture future = new PermissionFuture(nextAsyncCallId(), executor);
+
+        if (hasPermission(permission)) {
+            recordGrantedCall(future.getCallId(), permission);
+            future.complete(CallRequestStatus.PERMISSION_GRANTED);
+            return future;
+        }
+
+        synchronized (sAsyncResultTargets) {
+            sAsyncResultTargets.put(future.getCallId(), future);
+        }
+
+        PermissionCallInternalData data = new PermissionCallInternalData();
+        data.async = true;
+        data.callId = future.getCallId();
+        data.permissions = getSinglePermissionArray(permission);
+
+        final PendingPermissionCall pendingPermissionCall = new PendingPermissionCall(permissionCallOptions, data);
+
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            startAsyncCall(future, pendingPermissionCall);
+        } else {
+            final PermissionFuture resultTarget = future;
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    startAsyncCall(resultTarget, pendingPermissionCall);
+                }
+            });
+        }
+
+        return future;
+    }
+
+    private void startAsyncCall(PermissionFuture future, PendingPermissionCall pendingCall) {
+        if (future.isDone()) {
+            return;
+        }
+
+        // activity could have been destroyed before the call got to the main thread
+        if (destroyed) {
+            synchronized (sAsyncResultTargets) {
+                sAsyncResultTargets.remove(future.getCallId());
+            }
+            future.complete(CallRequestStatus.REQUEST_CANCELLED);
+            return;
+        }
+
+        doCallWithPermission(activity, future, pendingCall);
+    }
+
+    /**
+     * Requests permissions of requests that were queued by {@link PermissifyCoordinator} as a single call. It has to be called on the main thread.
+     *
+     * @return id of the call, it can be cancelled with {@link #cancelAsyncCall}
+     */
+    int requestBatch(String[] permissions, PermissionCallOptions permissionCallOptions, MultiplePermissionsCallback callback) {
+        PermissionCallInternalData data = new PermissionCallInternalData();
+        data.async = true;
+        data.multiplePermissions = true;
+        data.callId = nextAsyncCallId();
+        data.permissions = checkPermissions(permissions);
+
+        synchronized (sAsyncResultTargets) {
+            sAsyncResultTargets.put(data.callId, callback);
+        }
+
+        doCallWithPermission(activity, callback, new PendingPermissionCall(permissionCallOptions, data));
+        return data.callId;
+    }
+
+    /**
+     * Gets call id for asynchronous request, skipping ids of requests that are still waiting for result
+     */
+    static int nextAsyncCallId() {
+        synchronized (sAsyncResultTargets) {
+            for (int i = 0; i <= ASYNC_CALL_ID_MASK; i++) {
+                int callId = ASYNC_CALL_ID_MIN + (sAsyncCallCounter.getAndIncrement() & ASYNC_CALL_ID_MASK);
+                if (sAsyncResultTargets.get(callId) == null) {
+                    return callId;
+                }
+            }
+        }
+
+        throw new IllegalStateException("Too many asynchronous requests are waiting for result");
+    }
+
+    /**
+     * Releases result target of asynchronous call that was cancelled by the caller and cancels the call with manager that has it pending.
+     * It can be called from any thread.
+     */
+    static void cancelAsyncCall(final int callId) {
+        synchronized (sAsyncResultTargets) {
+            sAsyncResultTargets.remove(callId);
+        }
+
+        Runnable cancelCall = new Runnable() {
+            @Override
+            public void run() {
+                for (PermissifyManager manager : new ArrayList<>(sLiveManagers)) {
+                    PendingPermissionCall pendingCall = manager.callTable.get(callId);
+                    if (pendingCall != null && pendingCall.internalData.async) {
+                        manager.callTable.finish(pendingCall, CallRequestStatus.REQUEST_CANCELLED);
+                    }
+                }
+            }
+        };
+
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            cancelCall.run();
+        } else {
+            new Handler(Looper.getMainLooper()).post(cancelCall);
+        }
+    }
+
+    /**
+     * Registers observer that is notified when grant state of permission requested in the app manifest changes.
+     * State is compared with the previous one every time the activity is resumed and when permission request is finished, so screens don't need to
+     * check every permission in onResume.
+     *
+     * @param observer - observer that is called on the main thread
+     */
+    public void addPermissionStateObserver(PermissionStateObserver observer) {
+        if (!stateObservers.contains(observer)) {
+            stateObservers.add(observer);
+        }
+    }
+
+    /**
+     * Unregisters observer that was registered with {@link #addPermissionStateObserver}
+     */
+    public void removePermissionStateObserver(PermissionStateObserver observer) {
+        stateObservers.remove(observer);
+    }
+
     /**
      * Checks whether or not app has this permission
      *
@@ -105,7 +424,23 @@ public class PermissifyManager {
      * @return true - app has this permission, false app doesn't have this permission
      */
     public boolean hasPermission(String permission) {
-        return ContextCompat.checkSelfPermission(activity, permission) == PackageManager.PERMISSION_GRANTED;
+        return grantState.isGranted(permission);
+    }
+
+    /**
+     * Checks whether or not app has all of these permissions
+     *
+     * @param permissions - one or more of the {@link android.Manifest.permission}
+     * @return true - app has all of these permissions, false app doesn't have at least one of them
+     */
+    public boolean hasAllPermissions(String... permissions) {
+        for (String permission : permissions) {
+            if (!grantState.isGranted(permission)) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     /**
@@ -114,67 +449,509 @@ public class PermissifyManager {
      * @param callId - unique identifier that is associated with this permission call
      */
     public void onRationaleConfirmed(int callId) {
-        PendingPermissionCall pendingPermissionCall = pendingPermissionCalls.get(callId);
+        PendingPermissionCall pendingPermissionCall = callTable.get(callId);
         getLifecycleHandler().onRationaleDialogConfirm(pendingPermissionCall);
     }
 
+    /**
+     * Cancels call that is waiting for rationale or system request. It is finished with {@link CallRequestStatus#REQUEST_CANCELLED},
+     * while calls of other callers that wait for the same rationale or system request keep waiting. It has to be called on the main thread.
+     *
+     * @param callId - unique identifier that is associated with this permission call
+     * @return true - call was cancelled, false - there is no such pending call
+     */
+    public boolean cancel(int callId) {
+        PendingPermissionCall pendingCall = callTable.get(callId);
+        return pendingCall != null && callTable.finish(pendingCall, CallRequestStatus.REQUEST_CANCELLED);
+    }
+
     LifecycleHandler getLifecycleHandler() {
         return lifecycleHandler;
     }
 
-    private void doCallWithPermission(FragmentActivity activity, Callback callback, PendingPermissionCall pendingCall) {
-        callOptionsInitializer.initializeWithDefault(activity, pendingCall.internalData.permission, pendingCall.options, permissifyConfig);
+    private void doCallWithPermission(FragmentActivity activity, Object resultTarget, PendingPermissionCall pendingCall) {
+        PermissifyTracer tracer = PermissifyConfig.get().getTracer();
+        tracer.beginSection("Permissify#callWithPermission");
+        try {
+            startCall(activity, resultTarget, pendingCall);
+        } finally {
+            tracer.endSection();
+        }
+    }
+
+    private void startCall(FragmentActivity activity, Object resultTarget, PendingPermissionCall pendingCall) {
+        PermissifyConfig permissifyConfig = PermissifyConfig.get();
+        PermissifyMetrics metrics = permissifyConfig.getMetrics();
+        if (metrics != null) {
+            pendingCall.internalData.requestStartTime = SystemClock.elapsedRealtime();
+        }
+        record(PermissifyFlightRecorder.EventType.CALL_STARTED, pendingCall);
+
+        CancellationSignal cancellationSignal = pendingCall.options.getCancellationSignal();
+        if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+            record(PermissifyFlightRecorder.EventType.CALL_CANCELLED, pendingCall);
+            CallRequestStatus[] statuses = getStatuses(pendingCall, CallRequestStatus.REQUEST_CANCELLED);
+            reportRequestCompleted(pendingCall, statuses);
+            deliverResult(resultTarget, pendingCall, statuses);
+            return;
+        }
+
+        String[] missingPermissions = getMissingPermissions(pendingCall.internalData.permissions);
 
-        if (hasPermission(pendingCall.internalData.permission)) {
-            callback.onCallWithPermissionResult(pendingCall.internalData.callId, CallRequestStatus.PERMISSION_GRANTED);
+        if (missingPermissions.length > 0) {
+            PendingPermissionCall inFlightCall = callTable.findInFlightCall(pendingCall.internalData.callId, pendingCall.internalData.permissions);
+            if (inFlightCall != null) {
+                coalesceWithInFlightCall(resultTarget, pendingCall, inFlightCall);
+                return;
+            }
+        }
+
+        if (missingPermissions.length > 0 && permissifyConfig.getInitialBackoffMillis() > 0
+            && RequestThrottle.get().isThrottled(missingPermissions, permissifyConfig.getInitialBackoffMillis(), permissifyConfig.getMaxBackoffMillis())) {
+            record(PermissifyFlightRecorder.EventType.CALL_THROTTLED, pendingCall);
+            pendingCall.options = callOptionsInitializer.initializeWithDefault(activity, missingPermissions[0], pendingCall.options, permissifyConfig);
+            CallRequestStatus[] statuses = getThrottledStatuses(pendingCall);
+            reportRequestCompleted(pendingCall, statuses);
+            deliverResult(resultTarget, pendingCall, statuses);
+            return;
+        }
+
+        String rationalePermission = pendingCall.options.isRationaleEnabled() ? getRationalePermission(activity, missingPermissions) : null;
+        String textPermission = rationalePermission != null ? rationalePermission :
+            missingPermissions.length > 0 ? missingPermissions[0] : pendingCall.internalData.permissions[0];
+
+        pendingCall.options = callOptionsInitializer.initializeWithDefault(activity, textPermission, pendingCall.options, permissifyConfig);
+
+        if (missingPermissions.length == 0) {
+            CallRequestStatus[] statuses = getStatuses(pendingCall, CallRequestStatus.PERMISSION_GRANTED);
+            reportRequestCompleted(pendingCall, statuses);
+            deliverResult(resultTarget, pendingCall, statuses);
+        } else if (rationalePermission == null && permissifyConfig.isPermissionHistoryEnabled() && areDeniedForever(missingPermissions)) {
+            // system would deny the request without asking the user, so the result is known without making it
+            record(PermissifyFlightRecorder.EventType.CALL_SKIPPED_DENIED_FOREVER, pendingCall);
+            int[] grantResults = new int[missingPermissions.length];
+            Arrays.fill(grantResults, PackageManager.PERMISSION_DENIED);
+            lifecycleHandler.completeCall(pendingCall, resultTarget, missingPermissions, grantResults, false);
         } else {
-            pendingPermissionCalls.put(pendingCall.internalData.callId, pendingCall);
+            addPendingCall(pendingCall);
+            permissifyConfig.getTracer().beginAsyncSection(ASYNC_SECTION_REQUEST, pendingCall.internalData.callId);
 
-            if (pendingCall.options.isRationaleEnabled() && ActivityCompat.shouldShowRequestPermissionRationale(activity, pendingCall.internalData.permission)) {
+            if (rationalePermission != null) {
+                if (metrics != null) {
+                    pendingCall.internalData.rationaleStartTime = SystemClock.elapsedRealtime();
+                }
                 if (pendingCall.options.showRationaleDialog()) {
-                    PermissionRationaleDialogFragment.showDialog(activity.getSupportFragmentManager(), pendingCall);
+                    boolean scheduled = dialogScheduler.scheduleRationaleDialog(pendingCall, PermissionInfoCache.get().getPermissionGroup(activity, rationalePermission));
+                    record(scheduled ? PermissifyFlightRecorder.EventType.RATIONALE_SHOWN : PermissifyFlightRecorder.EventType.DIALOG_COLLAPSED, pendingCall);
+                    if (scheduled && metrics != null) {
+                        metrics.onRationaleDialogShown(rationalePermission);
+                    }
                 }
-                callback.onCallWithPermissionResult(pendingCall.internalData.callId, CallRequestStatus.SHOW_PERMISSION_RATIONALE);
+                deliverResult(resultTarget, pendingCall, getStatuses(pendingCall, CallRequestStatus.SHOW_PERMISSION_RATIONALE));
             } else {
-                ActivityCompat.requestPermissions(activity, new String[]{ pendingCall.internalData.permission }, pendingCall.internalData.callId);
+                requestPermissions(pendingCall, missingPermissions);
             }
         }
     }
 
-    @Nullable
-    private Callback getCallback(Activity activity) {
-        if (activity instanceof Callback) {
-            return (Callback) activity;
+    /**
+     * Makes given call wait for the result of in-flight call instead of making its own system request or showing another rationale dialog
+     */
+    private void coalesceWithInFlightCall(Object resultTarget, PendingPermissionCall pendingCall, PendingPermissionCall inFlightCall) {
+        callTable.coalesce(pendingCall, inFlightCall);
+        setCancelListener(pendingCall);
+        record(PermissifyFlightRecorder.EventType.CALL_COALESCED, pendingCall);
+        PermissifyConfig.get().getTracer().beginAsyncSection(ASYNC_SECTION_REQUEST, pendingCall.internalData.callId);
+
+        if (!inFlightCall.internalData.systemRequestInFlight) {
+            deliverResult(resultTarget, pendingCall, getStatuses(pendingCall, CallRequestStatus.SHOW_PERMISSION_RATIONALE));
         }
+    }
 
-        return null;
+    /**
+     * Adds call to the table of pending calls. When the table is full, the oldest call is evicted to make room for it.
+     */
+    private void addPendingCall(PendingPermissionCall pendingCall) {
+        callTable.add(pendingCall, null);
+        setCancelListener(pendingCall);
+    }
+
+    private void setCancelListener(final PendingPermissionCall pendingCall) {
+        CancellationSignal cancellationSignal = pendingCall.options.getCancellationSignal();
+        if (cancellationSignal != null) {
+            cancellationSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    // signal can be cancelled from any thread
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            callTable.finish(pendingCall, CallRequestStatus.REQUEST_CANCELLED);
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    /**
+     * Finishes call that the table of pending calls removed before the result of system request came. Its rationale dialog is removed
+     * and calls whose dialogs were collapsed into it get their own dialogs.
+     */
+    private void onPendingCallFinished(PendingPermissionCall pendingCall, CallRequestStatus status) {
+        int[] collapsedCallIds = dialogScheduler.cancel(pendingCall.internalData.callId);
+        finishCall(pendingCall, status, getEventType(status));
+        rescheduleRationaleDialogs(collapsedCallIds);
+    }
+
+    /**
+     * Shows rationale dialog for call that took over waiting for rationale from call that was finished early
+     */
+    private void onPendingCallPromoted(PendingPermissionCall pendingCall) {
+        if (pendingCall.options.showRationaleDialog()) {
+            scheduleRationaleDialog(pendingCall);
+        }
+    }
+
+    private static PermissifyFlightRecorder.EventType getEventType(CallRequestStatus status) {
+        switch (status) {
+            case REQUEST_TIMED_OUT:
+                return PermissifyFlightRecorder.EventType.CALL_TIMED_OUT;
+            case REQUEST_EVICTED:
+                return PermissifyFlightRecorder.EventType.CALL_EVICTED;
+            default:
+                return PermissifyFlightRecorder.EventType.CALL_CANCELLED;
+        }
+    }
+
+    /**
+     * Schedules rationale dialogs again for calls whose dialogs were collapsed into dialog of a call that was finished before it was confirmed
+     */
+    private void rescheduleRationaleDialogs(int[] callIds) {
+        for (int callId : callIds) {
+            PendingPermissionCall pendingCall = callTable.get(callId);
+            if (pendingCall == null || pendingCall.internalData.coalesced) {
+                continue;
+            }
+
+            scheduleRationaleDialog(pendingCall);
+        }
+    }
+
+    private void scheduleRationaleDialog(PendingPermissionCall pendingCall) {
+        String[] missingPermissions = getMissingPermissions(pendingCall.internalData.permissions);
+        String permission = missingPermissions.length > 0 ? missingPermissions[0] : pendingCall.internalData.permissions[0];
+        boolean scheduled = dialogScheduler.scheduleRationaleDialog(pendingCall, PermissionInfoCache.get().getPermissionGroup(activity, permission));
+        record(scheduled ? PermissifyFlightRecorder.EventType.RATIONALE_SHOWN : PermissifyFlightRecorder.EventType.DIALOG_COLLAPSED, pendingCall);
+    }
+
+    /**
+     * Checks whether or not call is still waiting for rationale or system request
+     */
+    boolean isPending(int callId) {
+        return callTable.isPending(callId);
+    }
+
+    private void finishCall(PendingPermissionCall pendingCall, CallRequestStatus status, PermissifyFlightRecorder.EventType eventType) {
+        clearCancelListener(pendingCall);
+        record(eventType, pendingCall);
+        PermissifyConfig.get().getTracer().endAsyncSection(ASYNC_SECTION_REQUEST, pendingCall.internalData.callId);
+
+        CallRequestStatus[] statuses = getStatuses(pendingCall, status);
+        reportRequestCompleted(pendingCall, statuses);
+        deliverResult(getResultTarget(pendingCall), pendingCall, statuses);
+    }
+
+    private static void clearCancelListener(PendingPermissionCall pendingCall) {
+        CancellationSignal cancellationSignal = pendingCall.options.getCancellationSignal();
+        if (cancellationSignal != null) {
+            cancellationSignal.setOnCancelListener(null);
+        }
+    }
+
+    /**
+     * Finishes asynchronous calls of finishing activity, so futures and batches don't wait for result that is never going to come
+     */
+    private void cancelAsyncCalls() {
+        for (PendingPermissionCall pendingCall : callTable.getCalls()) {
+            if (pendingCall.internalData.async) {
+                callTable.remove(pendingCall);
+                finishCall(pendingCall, CallRequestStatus.REQUEST_CANCELLED, PermissifyFlightRecorder.EventType.CALL_CANCELLED);
+            }
+        }
+    }
+
+    private CallRequestStatus[] getThrottledStatuses(PendingPermissionCall pendingCall) {
+        String[] permissions = pendingCall.internalData.permissions;
+        CallRequestStatus[] statuses = new CallRequestStatus[permissions.length];
+
+        for (int i = 0; i < permissions.length; i++) {
+            statuses[i] = hasPermission(permissions[i]) ? CallRequestStatus.PERMISSION_GRANTED : CallRequestStatus.REQUEST_THROTTLED;
+        }
+
+        return statuses;
+    }
+
+    /**
+     * Checks whether or not all permissions were denied forever according to the history
+     */
+    private boolean areDeniedForever(String[] permissions) {
+        PermissionHistory history = PermissionHistory.get();
+
+        for (String permission : permissions) {
+            if (!history.isDeniedForever(permission) || platform.shouldShowRationale(permission)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void recordRequestHistory(String[] permissions, int[] grantResults) {
+        PermissionHistory history = PermissionHistory.get();
+        long timestamp = System.currentTimeMillis();
+
+        for (int i = 0; i < permissions.length && i < grantResults.length; i++) {
+            CallRequestStatus status = callTable.getStatus(permissions[i], grantResults[i] == PackageManager.PERMISSION_GRANTED);
+            int outcome = status == CallRequestStatus.PERMISSION_GRANTED ? PermissionHistory.OUTCOME_GRANTED :
+                status == CallRequestStatus.PERMISSION_DENIED_ONCE ? PermissionHistory.OUTCOME_DENIED_ONCE : PermissionHistory.OUTCOME_DENIED_FOREVER;
+            history.recordRequest(permissions[i], outcome, timestamp);
+        }
+    }
+
+    private void requestPermissions(PendingPermissionCall pendingCall, String[] permissions) {
+        if (PermissifyConfig.get().getMetrics() != null) {
+            pendingCall.internalData.systemRequestStartTime = SystemClock.elapsedRealtime();
+        }
+
+        record(PermissifyFlightRecorder.EventType.SYSTEM_REQUEST_ISSUED, pendingCall);
+        callTable.request(pendingCall, permissions);
+    }
+
+    private static void record(PermissifyFlightRecorder.EventType type, PendingPermissionCall pendingCall) {
+        PermissifyFlightRecorder flightRecorder = PermissifyConfig.get().getFlightRecorder();
+        if (flightRecorder != null) {
+            flightRecorder.record(type, pendingCall.internalData.callId, pendingCall.internalData.permissions);
+        }
+    }
+
+    /**
+     * Records transitions of call that is finished right away because permission is already granted, without creating pending call
+     */
+    static void recordGrantedCall(int callId, String permission) {
+        PermissifyFlightRecorder flightRecorder = PermissifyConfig.get().getFlightRecorder();
+        if (flightRecorder != null) {
+            String[] permissions = getSinglePermissionArray(permission);
+            flightRecorder.record(PermissifyFlightRecorder.EventType.CALL_STARTED, callId, permissions);
+            flightRecorder.record(PermissifyFlightRecorder.EventType.RESULT_DELIVERED, callId, permissions);
+        }
+    }
+
+    private void reportGranted(String permission) {
+        PermissifyMetrics metrics = PermissifyConfig.get().getMetrics();
+        if (metrics != null) {
+            metrics.onRequestCompleted(permission, PermissionInfoCache.get().getPermissionGroup(activity, permission), CallRequestStatus.PERMISSION_GRANTED, 0);
+        }
+    }
+
+    private void reportRequestCompleted(PendingPermissionCall pendingCall, CallRequestStatus[] statuses) {
+        PermissifyMetrics metrics = PermissifyConfig.get().getMetrics();
+        if (metrics == null) {
+            return;
+        }
+
+        String[] permissions = pendingCall.internalData.permissions;
+        long duration = SystemClock.elapsedRealtime() - pendingCall.internalData.requestStartTime;
+
+        for (int i = 0; i < permissions.length; i++) {
+            metrics.onRequestCompleted(permissions[i], PermissionInfoCache.get().getPermissionGroup(activity, permissions[i]), statuses[i], duration);
+        }
+    }
+
+    private static void checkCallId(int callId) {
+        if (callId >= ASYNC_CALL_ID_MIN) {
+            throw new IllegalArgumentException("Call id " + callId + " is reserved for asynchronous requests, use ids lower than " + ASYNC_CALL_ID_MIN);
+        }
+    }
+
+    private String[] checkPermissions(String[] permissions) {
+        if (permissions == null || permissions.length == 0) {
+            throw new IllegalArgumentException("At least one permission has to be requested");
+        }
+
+        return permissions.clone();
+    }
+
+    private static String[] getSinglePermissionArray(String permission) {
+        String[] permissions = sSinglePermissionArrays.get(permission);
+
+        if (permissions == null) {
+            permissions = new String[]{ permission };
+            sSinglePermissionArrays.put(permission, permissions);
+        }
+
+        return permissions;
+    }
+
+    private String[] getMissingPermissions(String[] permissions) {
+        if (permissions.length == 1) {
+            return hasPermission(permissions[0]) ? NO_PERMISSIONS : permissions;
+        }
+
+        List<String> missingPermissions = new ArrayList<>(permissions.length);
+        for (String permission : permissions) {
+            if (!hasPermission(permission)) {
+                missingPermissions.add(permission);
+            }
+        }
+
+        return missingPermissions.toArray(new String[missingPermissions.size()]);
     }
 
     @Nullable
-    private Callback getCallback(Fragment fragment) {
-        if (fragment instanceof Callback) {
-            return (Callback) fragment;
+    private String getRationalePermission(Activity activity, String[] permissions) {
+        for (String permission : permissions) {
+            if (platform.shouldShowRationale(permission)) {
+                return permission;
+            }
         }
 
         return null;
     }
 
+    /**
+     * Every permission that is not granted yet gets given status, granted permissions are reported as granted
+     */
+    private CallRequestStatus[] getStatuses(PendingPermissionCall pendingCall, CallRequestStatus status) {
+        String[] permissions = pendingCall.internalData.permissions;
+        CallRequestStatus[] statuses = new CallRequestStatus[permissions.length];
+
+        for (int i = 0; i < permissions.length; i++) {
+            statuses[i] = status == CallRequestStatus.PERMISSION_GRANTED || hasPermission(permissions[i]) ? CallRequestStatus.PERMISSION_GRANTED : status;
+        }
+
+        return statuses;
+    }
+
+    private boolean canDeliverResult(@Nullable Object resultTarget, PendingPermissionCall pendingCall) {
+        if (pendingCall.internalData.async && !pendingCall.internalData.multiplePermissions) {
+            return resultTarget instanceof PermissionFuture;
+        }
+
+        return pendingCall.internalData.multiplePermissions ? resultTarget instanceof MultiplePermissionsCallback : resultTarget instanceof Callback;
+    }
+
     @Nullable
-    private Callback getCallback(PendingPermissionCall pendingPermissionCall) {
-        if (pendingPermissionCall.internalData.requestFromFragment) {
-            Fragment requestingFragment = getRequestingFragment(pendingPermissionCall);
-            if (requestingFragment != null) {
-                return getCallback(requestingFragment);
+    private static Executor getResultExecutor(PermissionCallOptions callOptions) {
+        Executor executor = callOptions.getResultExecutor();
+        return executor != null ? executor : PermissifyConfig.get().getResultExecutor();
+    }
+
+    private void deliverResult(@Nullable Object resultTarget, final PendingPermissionCall pendingCall, final CallRequestStatus[] statuses) {
+        if (!canDeliverResult(resultTarget, pendingCall)) {
+            return;
+        }
+
+        Executor executor = getResultExecutor(pendingCall.options);
+        if (executor == null || pendingCall.internalData.async) {
+            dispatchResult(resultTarget, pendingCall, statuses);
+            return;
+        }
+
+        final Object requestingTarget = resultTarget;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Object currentTarget = requestingTarget;
+
+                if (requestingTarget instanceof Fragment && !((Fragment) requestingTarget).isAdded()) {
+                    // fragment could have been recreated in the meantime, it is safe to look for the new one only on the main thread
+                    currentTarget = Looper.myLooper() == Looper.getMainLooper() ? getResultTarget(pendingCall) : null;
+                } else if (requestingTarget instanceof Activity && (destroyed || ((Activity) requestingTarget).isFinishing())) {
+                    // call is already finished, so activity that replaces this one doesn't know about it and the result is dropped
+                    currentTarget = null;
+                }
+
+                if (canDeliverResult(currentTarget, pendingCall)) {
+                    dispatchResult(currentTarget, pendingCall, statuses);
+                } else {
+                    record(PermissifyFlightRecorder.EventType.CALLBACK_DROPPED, pendingCall);
+                    Log.w(TAG, "Callback was null. Unable to dispatch permission result");
+                }
             }
+        });
+    }
+
+    private void dispatchResult(Object resultTarget, PendingPermissionCall pendingCall, CallRequestStatus[] statuses) {
+        record(PermissifyFlightRecorder.EventType.RESULT_DELIVERED, pendingCall);
+
+        if (pendingCall.internalData.async) {
+            completeAsyncCall(resultTarget, pendingCall, statuses);
+        } else if (pendingCall.internalData.multiplePermissions) {
+            ((MultiplePermissionsCallback) resultTarget).onCallWithPermissionsResult(pendingCall.internalData.callId, toStatusMap(pendingCall.internalData.permissions, statuses));
         } else {
-            return getCallback(activity);
+            dispatchToCallback((Callback) resultTarget, pendingCall.internalData.callId, statuses[0]);
         }
+    }
 
-        return null;
+    /**
+     * Calls methods annotated with {@link OnPermissionResult} and then the callback itself
+     */
+    private static void dispatchToCallback(Callback callback, int callId, CallRequestStatus status) {
+        PermissionResultDispatchers.dispatch(callback, callId, status);
+        callback.onCallWithPermissionResult(callId, status);
+    }
+
+    private void completeAsyncCall(Object resultTarget, PendingPermissionCall pendingCall, CallRequestStatus[] statuses) {
+        // default rationale dialog continues the call, so it is completed with the result of system request
+        if (pendingCall.options.showRationaleDialog() && Arrays.asList(statuses).contains(CallRequestStatus.SHOW_PERMISSION_RATIONALE)) {
+            return;
+        }
+
+        synchronized (sAsyncResultTargets) {
+            sAsyncResultTargets.remove(pendingCall.internalData.callId);
+        }
+
+        if (pendingCall.internalData.multiplePermissions) {
+            ((MultiplePermissionsCallback) resultTarget).onCallWithPermissionsResult(pendingCall.internalData.callId, toStatusMap(pendingCall.internalData.permissions, statuses));
+        } else {
+            ((PermissionFuture) resultTarget).complete(statuses[0]);
+        }
+    }
+
+    private static Map<String, CallRequestStatus> toStatusMap(String[] permissions, CallRequestStatus[] statuses) {
+        Map<String, CallRequestStatus> statusMap = new LinkedHashMap<>(permissions.length);
+        for (int i = 0; i < permissions.length; i++) {
+            statusMap.put(permissions[i], statuses[i]);
+        }
+
+        return Collections.unmodifiableMap(statusMap);
+    }
+
+    /**
+     * Finds object that requested permission call. It can be activity, fragment or future of asynchronous call.
+     */
+    @Nullable
+    private Object getResultTarget(PendingPermissionCall pendingPermissionCall) {
+        if (pendingPermissionCall.internalData.async) {
+            synchronized (sAsyncResultTargets) {
+                return sAsyncResultTargets.get(pendingPermissionCall.internalData.callId);
+            }
+        }
+
+        if (pendingPermissionCall.internalData.requestFromFragment) {
+            return getRequestingFragment(pendingPermissionCall);
+        }
+
+        return activity;
     }
 
     @Nullable
     private Fragment getRequestingFragment(PendingPermissionCall permissionCall) {
+        if (permissionCall.internalData.callbackToken != null) {
+            return CallbackRegistry.get(permissionCall.internalData.callbackToken);
+        }
+
         return activity.getSupportFragmentManager().findFragmentById(permissionCall.internalData.fragmentId);
     }
 
@@ -192,72 +969,506 @@ public class PermissifyManager {
         void onCallWithPermissionResult(int callId, CallRequestStatus status);
     }
 
-    private static class PermissionCallInternalData implements Serializable {
-        private int callId;
-        private boolean requestFromFragment;
-        private int fragmentId;
-        private String permission;
+    /**
+     * Callback that is used by PermissifyManager to deliver status of request for several permissions at once
+     */
+    public interface MultiplePermissionsCallback {
+
+        /**
+         * Delivers permission request status for every requested permission
+         *
+         * @param callId   - unique identifier that is associated with this permission call
+         * @param statuses - current permission request status of each requested permission, in the order of the request
+         */
+        void onCallWithPermissionsResult(int callId, Map<String, CallRequestStatus> statuses);
     }
 
-    static class PendingPermissionCall implements Serializable {
-        public final PermissionCallOptions options;
+    static class PermissionCallInternalData extends PermissionCallState {
+
+        private static final int FLAG_REQUEST_FROM_FRAGMENT = 1;
+        private static final int FLAG_MULTIPLE_PERMISSIONS = 1 << 1;
+        private static final int FLAG_ASYNC = 1 << 2;
+        private static final int FLAG_COALESCED = 1 << 3;
+        private static final int FLAG_SYSTEM_REQUEST_IN_FLIGHT = 1 << 4;
+
+        boolean requestFromFragment;
+        int fragmentId;
+        String callbackToken;
+        boolean multiplePermissions;
+        boolean async;
+        long requestStartTime;
+        long rationaleStartTime;
+        long systemRequestStartTime;
+
+        PermissionCallInternalData() {
+        }
+
+        PermissionCallInternalData(Parcel in) {
+            int flags = in.readInt();
+            requestFromFragment = (flags & FLAG_REQUEST_FROM_FRAGMENT) != 0;
+            multiplePermissions = (flags & FLAG_MULTIPLE_PERMISSIONS) != 0;
+            async = (flags & FLAG_ASYNC) != 0;
+            coalesced = (flags & FLAG_COALESCED) != 0;
+            systemRequestInFlight = (flags & FLAG_SYSTEM_REQUEST_IN_FLIGHT) != 0;
+            callId = in.readInt();
+            fragmentId = in.readInt();
+            callbackToken = in.readString();
+            requestToken = in.readString();
+            inFlightCallId = in.readInt();
+            permissions = in.createStringArray();
+            requestStartTime = in.readLong();
+            rationaleStartTime = in.readLong();
+            systemRequestStartTime = in.readLong();
+            pendingSince = in.readLong();
+            deadline = in.readLong();
+        }
+
+        void writeToParcel(Parcel dest) {
+            dest.writeInt((requestFromFragment ? FLAG_REQUEST_FROM_FRAGMENT : 0)
+                | (multiplePermissions ? FLAG_MULTIPLE_PERMISSIONS : 0)
+                | (async ? FLAG_ASYNC : 0)
+                | (coalesced ? FLAG_COALESCED : 0)
+                | (systemRequestInFlight ? FLAG_SYSTEM_REQUEST_IN_FLIGHT : 0));
+            dest.writeInt(callId);
+            dest.writeInt(fragmentId);
+            dest.writeString(callbackToken);
+            dest.writeString(requestToken);
+            dest.writeInt(inFlightCallId);
+            dest.writeStringArray(permissions);
+            dest.writeLong(requestStartTime);
+            dest.writeLong(rationaleStartTime);
+            dest.writeLong(systemRequestStartTime);
+            dest.writeLong(pendingSince);
+            dest.writeLong(deadline);
+        }
+    }
+
+    static class PendingPermissionCall implements Parcelable, PermissionCallTable.Call {
+        public PermissionCallOptions options;
         public final PermissionCallInternalData internalData;
 
         public PendingPermissionCall(PermissionCallOptions options, PermissionCallInternalData internalData) {
             this.options = options;
             this.internalData = internalData;
         }
+
+        private PendingPermissionCall(Parcel in) {
+            this.options = new PermissionCallOptions(in);
+            this.internalData = new PermissionCallInternalData(in);
+        }
+
+        int getCallId() {
+            return internalData.callId;
+        }
+
+        @Override
+        public PermissionCallState getState() {
+            return internalData;
+        }
+
+        @Override
+        public long getTimeoutMillis() {
+            return options.getTimeoutMillis();
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            options.writeToParcel(dest, flags);
+            internalData.writeToParcel(dest);
+        }
+
+        public static final Creator<PendingPermissionCall> CREATOR = new Creator<PendingPermissionCall>() {
+            @Override
+            public PendingPermissionCall createFromParcel(Parcel in) {
+                return new PendingPermissionCall(in);
+            }
+
+            @Override
+            public PendingPermissionCall[] newArray(int size) {
+                return new PendingPermissionCall[size];
+            }
+        };
+    }
+
+    /**
+     * Finds manager whose calls wait for the result of given request. Request could have been made by manager of activity that was recreated
+     * since then, its calls were restored together with the request token by manager of the new activity. Calls of other managers that only
+     * share the request code never get the result.
+     *
+     * @param requestToken - token of the system request, null when the result was routed to the activity of this manager by the framework
+     */
+    @Nullable
+    private PermissifyManager getResultManager(int requestCode, @Nullable String requestToken) {
+        if (sLiveManagers.contains(this) && callTable.awaitsResult(requestCode, requestToken)) {
+            return this;
+        }
+
+        if (requestToken == null) {
+            return null;
+        }
+
+        for (int i = sLiveManagers.size() - 1; i >= 0; i--) {
+            if (sLiveManagers.get(i).callTable.awaitsResult(requestCode, requestToken)) {
+                return sLiveManagers.get(i);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Manager that updates grant state and history with result that no call waits for anymore
+     */
+    @Nullable
+    private PermissifyManager getStateManager() {
+        if (sLiveManagers.contains(this)) {
+            return this;
+        }
+        return sLiveManagers.isEmpty() ? null : sLiveManagers.get(sLiveManagers.size() - 1);
+    }
+
+    /**
+     * Checks timeouts of pending calls on the main thread
+     */
+    private class MainThreadScheduler implements PermissionCallTable.Scheduler {
+
+        @Override
+        public long now() {
+            return SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            mainHandler.postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            mainHandler.removeCallbacks(task);
+        }
+    }
+
+    /**
+     * Finishes calls that the table of pending calls removed and receives results of system requests, so that they can be told apart
+     * from requests that used the same request code
+     */
+    private class CallTableListener implements PermissionCallTable.Listener<PendingPermissionCall> {
+
+        @Override
+        public void onCallFinished(PendingPermissionCall call, CallRequestStatus status) {
+            onPendingCallFinished(call, status);
+        }
+
+        @Override
+        public void onCallPromoted(PendingPermissionCall call) {
+            onPendingCallPromoted(call);
+        }
+
+        @Override
+        public void onRequestResult(int requestCode, String requestToken, String[] permissions, int[] grantResults) {
+            lifecycleHandler.onRequestPermissionsResult(requestCode, requestToken, permissions, grantResults);
+        }
     }
 
     class LifecycleHandler {
 
+        /**
+         * Handles result that the framework passed to the activity of this manager
+         */
         void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
-            PendingPermissionCall pendingPermissionCall = pendingPermissionCalls.remove(requestCode);
+            onRequestPermissionsResult(requestCode, null, permissions, grantResults);
+        }
+
+        /**
+         * @param requestToken - token of the system request, null when the result was routed to the activity of this manager by the framework
+         */
+        private void onRequestPermissionsResult(final int requestCode, @Nullable final String requestToken, final String[] permissions,
+                                                final int[] grantResults) {
+            if (Looper.myLooper() != Looper.getMainLooper()) {
+                // platform can deliver the result on its own thread, while manager state is accessed only on the main thread
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onRequestPermissionsResult(requestCode, requestToken, permissions, grantResults);
+                    }
+                });
+                return;
+            }
+
+            PermissifyTracer tracer = PermissifyConfig.get().getTracer();
+            tracer.beginSection("Permissify#onRequestPermissionsResult");
+            try {
+                PermissifyManager resultManager = getResultManager(requestCode, requestToken);
+                if (resultManager != null) {
+                    resultManager.lifecycleHandler.handleRequestPermissionsResult(requestCode, requestToken, permissions, grantResults);
+                    return;
+                }
+
+                // no call waits for the result anymore, calls with the same request code belong to other requests
+                PermissifyManager stateManager = getStateManager();
+                if (stateManager == null) {
+                    Log.w(TAG, "Activity was destroyed. Unable to handle permission result");
+                    return;
+                }
+                Log.w(TAG, "Unable to find PendingPermissionCall");
+                stateManager.lifecycleHandler.updateGrantState(requestCode, permissions, grantResults);
+            } finally {
+                tracer.endSection();
+            }
+        }
+
+        /**
+         * Updates grant state, throttle and history with the result, whether or not a call waits for it
+         */
+        private void updateGrantState(int requestCode, String[] permissions, int[] grantResults) {
+            PermissifyFlightRecorder flightRecorder = PermissifyConfig.get().getFlightRecorder();
+            if (flightRecorder != null) {
+                flightRecorder.record(PermissifyFlightRecorder.EventType.RESULT_RECEIVED, requestCode, permissions);
+            }
+
+            for (int i = 0; i < permissions.length && i < grantResults.length; i++) {
+                boolean granted = grantResults[i] == PackageManager.PERMISSION_GRANTED;
+                if (grantState.update(permissions[i], granted)) {
+                    stateObserverDispatcher.onPermissionStateChanged(permissions[i], granted);
+                }
+            }
+
+            for (int i = 0; i < permissions.length && i < grantResults.length; i++) {
+                RequestThrottle.get().onRequestResult(permissions[i], grantResults[i] == PackageManager.PERMISSION_GRANTED);
+            }
+
+            if (PermissifyConfig.get().isPermissionHistoryEnabled()) {
+                recordRequestHistory(permissions, grantResults);
+            }
+        }
+
+        private void handleRequestPermissionsResult(int requestCode, @Nullable String requestToken, String[] permissions, int[] grantResults) {
+            PendingPermissionCall pendingPermissionCall = callTable.removeRequestingCall(requestCode, requestToken);
+            List<PendingPermissionCall> coalescedCalls = callTable.removeCoalescedCalls(requestCode, requestToken);
+
+            updateGrantState(requestCode, permissions, grantResults);
 
             if (grantResults.length < 1) {
+                // request was interrupted, e.g. the system dialog was closed by another request, calls waiting for it must not hang
                 Log.w(TAG, "Incorrect size of grant result array");
+                if (pendingPermissionCall != null) {
+                    finishCall(pendingPermissionCall, CallRequestStatus.REQUEST_CANCELLED, PermissifyFlightRecorder.EventType.CALL_CANCELLED);
+                }
+                for (PendingPermissionCall coalescedCall : coalescedCalls) {
+                    finishCall(coalescedCall, CallRequestStatus.REQUEST_CANCELLED, PermissifyFlightRecorder.EventType.CALL_CANCELLED);
+                }
                 return;
             }
 
-            if (pendingPermissionCall == null) {
+            if (pendingPermissionCall == null && coalescedCalls.isEmpty()) {
                 Log.w(TAG, "Unable to find PendingPermissionCall");
                 return;
             }
 
-            boolean granted = (grantResults[0] == PackageManager.PERMISSION_GRANTED);
-            boolean showRationale = ActivityCompat.shouldShowRequestPermissionRationale(activity, permissions[0]);
-            Callback callback = getCallback(pendingPermissionCall);
+            // call could have been cancelled while calls coalesced with it still wait for the result
+            boolean denyDialogShown = false;
+            if (pendingPermissionCall != null) {
+                PermissifyMetrics metrics = PermissifyConfig.get().getMetrics();
+                if (metrics != null) {
+                    metrics.onSystemRequestCompleted(permissions, SystemClock.elapsedRealtime() - pendingPermissionCall.internalData.systemRequestStartTime);
+                }
 
-            if (callback == null) {
+                denyDialogShown = completeCall(pendingPermissionCall, getResultTarget(pendingPermissionCall), permissions, grantResults, false);
+            }
+            for (PendingPermissionCall coalescedCall : coalescedCalls) {
+                denyDialogShown |= completeCall(coalescedCall, getResultTarget(coalescedCall), permissions, grantResults, denyDialogShown);
+            }
+        }
+
+        /**
+         * Delivers final status of the call
+         *
+         * @return true if deny dialog was shown for this call
+         */
+        private boolean completeCall(PendingPermissionCall pendingPermissionCall, @Nullable Object resultTarget, String[] permissions, int[] grantResults,
+                                     boolean denyDialogShown) {
+            clearCancelListener(pendingPermissionCall);
+            PermissifyConfig.get().getTracer().endAsyncSection(ASYNC_SECTION_REQUEST, pendingPermissionCall.internalData.callId);
+            String[] callPermissions = pendingPermissionCall.internalData.permissions;
+            CallRequestStatus[] statuses = new CallRequestStatus[callPermissions.length];
+            boolean deniedForever = false;
+
+            for (int i = 0; i < callPermissions.length; i++) {
+                int resultIndex = indexOf(permissions, callPermissions[i]);
+                boolean granted = resultIndex >= 0 && resultIndex < grantResults.length ?
+                    grantResults[resultIndex] == PackageManager.PERMISSION_GRANTED : hasPermission(callPermissions[i]);
+
+                statuses[i] = callTable.getStatus(callPermissions[i], granted);
+                deniedForever |= statuses[i] == CallRequestStatus.PERMISSION_DENIED_FOREVER;
+            }
+
+            reportRequestCompleted(pendingPermissionCall, statuses);
+            boolean showDenyDialog = false;
+
+            if (!canDeliverResult(resultTarget, pendingPermissionCall)) {
+                record(PermissifyFlightRecorder.EventType.CALLBACK_DROPPED, pendingPermissionCall);
                 Log.w(TAG, "Callback was null. Unable to dispatch permission result");
             } else {
-                if (!granted && !showRationale) {
+                if (deniedForever && !denyDialogShown) {
                     if (pendingPermissionCall.options.showDenyDialog()) {
-                        PermissionDeniedInfoDialogFragment.showDialog(activity.getSupportFragmentManager(), pendingPermissionCall);
+                        showDenyDialog = true;
+                        String deniedPermission = getFirstDeniedForever(callPermissions, statuses);
+                        boolean scheduled = dialogScheduler.scheduleDenyDialog(pendingPermissionCall, PermissionInfoCache.get().getPermissionGroup(activity, deniedPermission));
+                        record(scheduled ? PermissifyFlightRecorder.EventType.DENY_DIALOG_SHOWN : PermissifyFlightRecorder.EventType.DIALOG_COLLAPSED, pendingPermissionCall);
+                        PermissifyMetrics metrics = PermissifyConfig.get().getMetrics();
+                        if (scheduled && metrics != null) {
+                            metrics.onDenyDialogShown(deniedPermission);
+                        }
                     }
                 }
 
-                callback.onCallWithPermissionResult(requestCode,
-                    granted ? CallRequestStatus.PERMISSION_GRANTED :
-                        showRationale ? CallRequestStatus.PERMISSION_DENIED_ONCE : CallRequestStatus.PERMISSION_DENIED_FOREVER);
+                deliverResult(resultTarget, pendingPermissionCall, statuses);
+            }
+
+            return showDenyDialog;
+        }
+
+        private String getFirstDeniedForever(String[] permissions, CallRequestStatus[] statuses) {
+            for (int i = 0; i < statuses.length; i++) {
+                if (statuses[i] == CallRequestStatus.PERMISSION_DENIED_FOREVER) {
+                    return permissions[i];
+                }
+            }
+
+            return permissions[0];
+        }
+
+        private int indexOf(String[] permissions, String permission) {
+            for (int i = 0; i < permissions.length; i++) {
+                if (permission.equals(permissions[i])) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        void onResume() {
+            grantState.refresh(stateObserverDispatcher);
+
+            if (PermissifyConfig.get().isPermissionHistoryEnabled()) {
+                PermissionHistory history = PermissionHistory.get();
+                for (String permission : history.getDeniedForeverPermissions()) {
+                    if (grantState.isGranted(permission)) {
+                        history.recordGranted(permission);
+                    }
+                }
             }
         }
 
-        @SuppressWarnings("unchecked")
         void onRestoreInstanceState(Bundle savedInstanceState) {
             if (savedInstanceState != null) {
                 if (savedInstanceState.containsKey(SAVE_INSTANCE_KEY_PENDING_PERMISSION_CALL)) {
-                    pendingPermissionCalls = (HashMap<Integer, PendingPermissionCall>) savedInstanceState.getSerializable(SAVE_INSTANCE_KEY_PENDING_PERMISSION_CALL);
+                    SparseArray<PendingPermissionCall> pendingCalls = savedInstanceState.getSparseParcelableArray(SAVE_INSTANCE_KEY_PENDING_PERMISSION_CALL);
+                    List<PendingPermissionCall> restoredCalls = new ArrayList<>(pendingCalls.size());
+                    for (int i = 0; i < pendingCalls.size(); i++) {
+                        restoredCalls.add(pendingCalls.valueAt(i));
+                    }
+                    callTable.restore(restoredCalls);
                 }
+                dialogScheduler.onRestoreInstanceState(savedInstanceState);
+            }
+        }
+
+        void onDestroy() {
+            sLiveManagers.remove(PermissifyManager.this);
+            destroyed = true;
+            callTable.release();
+
+            if (activity.isFinishing()) {
+                cancelAsyncCalls();
+            }
+
+            for (PendingPermissionCall pendingCall : callTable.getCalls()) {
+                clearCancelListener(pendingCall);
             }
         }
 
         void onSaveInstanceState(Bundle outState) {
-            outState.putSerializable(SAVE_INSTANCE_KEY_PENDING_PERMISSION_CALL, pendingPermissionCalls);
+            if (callTable.size() > 0) {
+                SparseArray<PendingPermissionCall> pendingCalls = new SparseArray<>(callTable.size());
+                for (PendingPermissionCall pendingCall : callTable.getCalls()) {
+                    pendingCalls.put(pendingCall.internalData.callId, pendingCall);
+                }
+                outState.putSparseParcelableArray(SAVE_INSTANCE_KEY_PENDING_PERMISSION_CALL, pendingCalls);
+            }
+            dialogScheduler.onSaveInstanceState(outState);
+        }
+
+        /**
+         * Makes calls whose rationale dialogs were collapsed into rationale dialog of given call wait for its result
+         *
+         * @return permissions of given call extended with missing permissions of collapsed calls
+         */
+        private String[] addCollapsedCalls(PendingPermissionCall pendingPermissionCall, String[] requestedPermissions) {
+            int[] collapsedCallIds = dialogScheduler.takeCollapsedCallIds(pendingPermissionCall.internalData.callId);
+            if (collapsedCallIds.length == 0) {
+                return requestedPermissions;
+            }
+
+            List<String> permissions = new ArrayList<>(Arrays.asList(requestedPermissions));
+            for (int collapsedCallId : collapsedCallIds) {
+                PendingPermissionCall collapsedCall = callTable.get(collapsedCallId);
+                if (collapsedCall == null || collapsedCall.internalData.coalesced) {
+                    continue;
+                }
+
+                callTable.coalesce(collapsedCall, pendingPermissionCall);
+
+                for (String permission : getMissingPermissions(collapsedCall.internalData.permissions)) {
+                    if (!permissions.contains(permission)) {
+                        permissions.add(permission);
+                    }
+                }
+            }
+
+            return permissions.toArray(new String[permissions.size()]);
+        }
+
+        void onDialogDismissed() {
+            dialogScheduler.onDialogDismissed();
         }
 
         void onRationaleDialogConfirm(PendingPermissionCall permissionCall) {
-            ActivityCompat.requestPermissions(activity, new String[]{ permissionCall.internalData.permission }, permissionCall.internalData.callId);
+            if (permissionCall == null) {
+                Log.w(TAG, "Unable to find PendingPermissionCall");
+                return;
+            }
+
+            PendingPermissionCall pendingPermissionCall = callTable.get(permissionCall.internalData.callId);
+            if (pendingPermissionCall == null) {
+                Log.w(TAG, "PendingPermissionCall was cancelled");
+                return;
+            }
+
+            if (pendingPermissionCall.internalData.coalesced) {
+                PendingPermissionCall inFlightCall = callTable.get(pendingPermissionCall.internalData.inFlightCallId);
+                if (inFlightCall == null || inFlightCall.internalData.systemRequestInFlight) {
+                    return;
+                }
+                pendingPermissionCall = inFlightCall;
+            }
+
+            String[] missingPermissions = getMissingPermissions(pendingPermissionCall.internalData.permissions);
+            String[] requestedPermissions = missingPermissions.length > 0 ? missingPermissions : pendingPermissionCall.internalData.permissions;
+            requestedPermissions = addCollapsedCalls(pendingPermissionCall, requestedPermissions);
+
+            PermissifyMetrics metrics = PermissifyConfig.get().getMetrics();
+            if (metrics != null) {
+                metrics.onRationaleCompleted(requestedPermissions, SystemClock.elapsedRealtime() - pendingPermissionCall.internalData.rationaleStartTime);
+            }
+
+            requestPermissions(pendingPermissionCall, requestedPermissions);
         }
 
     }
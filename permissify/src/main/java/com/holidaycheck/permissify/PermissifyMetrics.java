@@ -0,0 +1,51 @@
+package com.holidaycheck.permissify;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Listener that is notified about timings and outcomes of permission requests. It can be registered with {@link PermissifyConfig.Builder#withMetrics}.
+ * All durations are in milliseconds. Methods are called on the main thread, so implementations should only record values and return quickly.
+ * {@link PermissifyMetricsRecorder} is a ready to use implementation that aggregates them in counters and histograms.
+ */
+public interface PermissifyMetrics {
+
+    /**
+     * Called when the user confirmed rationale and system permission request is about to be made
+     *
+     * @param permissions    - permissions that the rationale was shown for
+     * @param durationMillis - time between showing the rationale and its confirmation
+     */
+    void onRationaleCompleted(String[] permissions, long durationMillis);
+
+    /**
+     * Called when the system delivered result of permission request
+     *
+     * @param permissions    - permissions that were requested from the system
+     * @param durationMillis - time between the system request and its result
+     */
+    void onSystemRequestCompleted(String[] permissions, long durationMillis);
+
+    /**
+     * Called when permission call reached its final status
+     *
+     * @param permission      - one of the {@link android.Manifest.permission}
+     * @param permissionGroup - one of the {@link android.Manifest.permission_group} or null if permission doesn't belong to any group
+     * @param status          - final status of the permission
+     * @param durationMillis  - time between the permission call and its final status
+     */
+    void onRequestCompleted(String permission, @Nullable String permissionGroup, PermissifyManager.CallRequestStatus status, long durationMillis);
+
+    /**
+     * Called when rationale dialog is shown
+     *
+     * @param permission - permission that the rationale is shown for
+     */
+    void onRationaleDialogShown(String permission);
+
+    /**
+     * Called when deny dialog is shown
+     *
+     * @param permission - permission that was denied forever
+     */
+    void onDenyDialogShown(String permission);
+}
@@ -0,0 +1,111 @@
+package com.holidaycheck.permissify;
+
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link PermissifyMetrics} that aggregates permission request timings in {@link LatencyHistogram}s and outcomes in lock-free counters.
+ * It can be read from any thread, e.g. to report values to analytics.
+ */
+public class PermissifyMetricsRecorder implements PermissifyMetrics {
+
+    private static final String NO_PERMISSION_GROUP = "";
+
+    private final LatencyHistogram rationaleLatency = new LatencyHistogram();
+    private final LatencyHistogram systemRequestLatency = new LatencyHistogram();
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+    private final AtomicLong rationaleDialogShowCount = new AtomicLong();
+    private final AtomicLong denyDialogShowCount = new AtomicLong();
+    private final ConcurrentHashMap<String, AtomicLongArray> outcomesPerGroup = new ConcurrentHashMap<>();
+
+    @Override
+    public void onRationaleCompleted(String[] permissions, long durationMillis) {
+        rationaleLatency.record(durationMillis);
+    }
+
+    @Override
+    public void onSystemRequestCompleted(String[] permissions, long durationMillis) {
+        systemRequestLatency.record(durationMillis);
+    }
+
+    @Override
+    public void onRequestCompleted(String permission, @Nullable String permissionGroup, PermissifyManager.CallRequestStatus status, long durationMillis) {
+        requestLatency.record(durationMillis);
+        getOutcomes(permissionGroup).incrementAndGet(status.ordinal());
+    }
+
+    @Override
+    public void onRationaleDialogShown(String permission) {
+        rationaleDialogShowCount.incrementAndGet();
+    }
+
+    @Override
+    public void onDenyDialogShown(String permission) {
+        denyDialogShowCount.incrementAndGet();
+    }
+
+    /**
+     * Gets histogram of time between showing rationale and its confirmation
+     */
+    public LatencyHistogram getRationaleLatency() {
+        return rationaleLatency;
+    }
+
+    /**
+     * Gets histogram of time between system permission request and its result
+     */
+    public LatencyHistogram getSystemRequestLatency() {
+        return systemRequestLatency;
+    }
+
+    /**
+     * Gets histogram of time between permission call and its final status
+     */
+    public LatencyHistogram getRequestLatency() {
+        return requestLatency;
+    }
+
+    /**
+     * Gets number of permission calls that ended with given status
+     *
+     * @param permissionGroup - one of the {@link android.Manifest.permission_group} or null for permissions without group
+     * @param status          - final status of permission call
+     */
+    public long getOutcomeCount(@Nullable String permissionGroup, PermissifyManager.CallRequestStatus status) {
+        AtomicLongArray outcomes = outcomesPerGroup.get(permissionGroup != null ? permissionGroup : NO_PERMISSION_GROUP);
+        return outcomes != null ? outcomes.get(status.ordinal()) : 0;
+    }
+
+    /**
+     * Gets number of times rationale dialog was shown
+     */
+    public long getRationaleDialogShowCount() {
+        return rationaleDialogShowCount.get();
+    }
+
+    /**
+     * Gets number of times deny dialog was shown
+     */
+    public long getDenyDialogShowCount() {
+        return denyDialogShowCount.get();
+    }
+
+    private AtomicLongArray getOutcomes(@Nullable String permissionGroup) {
+        String key = permissionGroup != null ? permissionGroup : NO_PERMISSION_GROUP;
+        AtomicLongArray outcomes = outcomesPerGroup.get(key);
+
+        if (outcomes == null) {
+            outcomes = new AtomicLongArray(PermissifyManager.CallRequestStatus.values().length);
+            AtomicLongArray previous = outcomesPerGroup.putIfAbsent(key, outcomes);
+            if (previous != null) {
+                outcomes = previous;
+            }
+        }
+
+        return outcomes;
+    }
+
+}
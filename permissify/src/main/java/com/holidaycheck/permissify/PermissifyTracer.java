@@ -0,0 +1,36 @@
+package com.holidaycheck.permissify;
+
+/**
+ * Receives trace sections of permission flows. By default they are written with {@link android.os.Trace}, so they show up in Systrace/Perfetto.
+ * Custom tracer can be set with {@link PermissifyConfig.Builder#withTracer}, e.g. to check traced flows in JVM tests.
+ */
+public interface PermissifyTracer {
+
+    /**
+     * Begins section on the current thread. Sections are nested and have to be ended on the same thread.
+     *
+     * @param sectionName - name of the section
+     */
+    void beginSection(String sectionName);
+
+    /**
+     * Ends the last section that was begun on the current thread
+     */
+    void endSection();
+
+    /**
+     * Begins asynchronous section that links permission request with its result. It can be ended on any thread.
+     *
+     * @param sectionName - name of the section
+     * @param callId      - id of the permission call
+     */
+    void beginAsyncSection(String sectionName, int callId);
+
+    /**
+     * Ends asynchronous section that was begun with {@link #beginAsyncSection}
+     *
+     * @param sectionName - name of the section
+     * @param callId      - id of the permission call
+     */
+    void endAsyncSection(String sectionName, int callId);
+}
@@ -1,51 +1,74 @@
 package com.holidaycheck.permissify;
 
 import android.content.Context;
-import android.content.pm.PackageManager;
 import android.support.annotation.NonNull;
-import android.util.Log;
 
 class PermissionCallDefaultInitializer {
 
-    private static final String TAG = "Permissify";
+    /**
+     * Fills missing dialog messages with default texts of permission. Options that are passed in are never changed, as they can be shared by many calls.
+     *
+     * @return options with default dialog messages, or the same options when nothing was missing
+     */
+    @NonNull
+    PermissionCallOptions initializeWithDefault(@NonNull Context context, @NonNull String permission, @NonNull PermissionCallOptions callOptions, PermissifyConfig permissifyConfig) {
+        PermissifyTracer tracer = permissifyConfig.getTracer();
+        tracer.beginSection("Permissify#initializeWithDefault");
+        try {
+            if (!needsDefaultDenyMessage(callOptions) && !needsDefaultRationaleMessage(callOptions)) {
+                return callOptions;
+            }
 
-    void initializeWithDefault(@NonNull Context context, @NonNull String permission, @NonNull PermissionCallOptions callOptions, PermissifyConfig permissifyConfig) {
-        DialogText text = getPermissionDefaultText(context, permission, permissifyConfig);
-        setDefaultDenyMessageIfNeeded(callOptions, text);
-        setDefaultRationalMessageIfNeeded(callOptions, text);
+            DialogText text = getPermissionDefaultText(context, permission, permissifyConfig);
+            PermissionCallOptions initializedOptions = callOptions.copy();
+            setDefaultDenyMessageIfNeeded(initializedOptions, text);
+            setDefaultRationalMessageIfNeeded(initializedOptions, text);
+
+            return initializedOptions;
+        } finally {
+            tracer.endSection();
+        }
     }
 
     @NonNull
     private DialogText getPermissionDefaultText(Context context, String permission, PermissifyConfig permissifyConfig) {
-        String permissionGroup = getPermissionGroup(context, permission);
-        DialogText text = null;
+        DialogTextResolver resolver = permissifyConfig.getDialogTextResolver();
+        DialogText text = resolver != null ? resolver.getDialogText(permission) : null;
 
+        if (text != null) {
+            return text;
+        }
+
+        boolean hasGroupTexts = resolver != null || !permissifyConfig.getDefaultTextForPermissions().isEmpty();
+        String permissionGroup = hasGroupTexts ? PermissionInfoCache.get().getPermissionGroup(context, permission) : null;
         if (permissionGroup != null) {
-            text = permissifyConfig.getDefaultTextForPermissions().get(permissionGroup);
+            text = resolver != null ? resolver.getGroupDialogText(permissionGroup) : null;
+            if (text == null) {
+                text = permissifyConfig.getDefaultTextForPermissions().get(permissionGroup);
+            }
         }
 
         return text != null ? text : permissifyConfig.getPermissionTextFallback();
     }
 
+    private boolean needsDefaultDenyMessage(PermissionCallOptions callOptions) {
+        return callOptions.showDenyDialog() && callOptions.getDenyDialogMsg() == null && callOptions.getDenyDialogMsgRes() == 0;
+    }
+
+    private boolean needsDefaultRationaleMessage(PermissionCallOptions callOptions) {
+        return callOptions.showRationaleDialog() && callOptions.getRationaleDialogMsg() == null && callOptions.getRationaleDialogMsgRes() == 0;
+    }
+
     private void setDefaultDenyMessageIfNeeded(PermissionCallOptions callOptions, DialogText dialogText) {
-        if (callOptions.showDenyDialog() && callOptions.getDenyDialogMsg() == null && callOptions.getDenyDialogMsgRes() == 0) {
+        if (needsDefaultDenyMessage(callOptions)) {
             callOptions.setDenyDialogMsgRes(dialogText.denyDialogMsgRes);
         }
     }
 
     private void setDefaultRationalMessageIfNeeded(PermissionCallOptions callOptions, DialogText dialogText) {
-        if (callOptions.showRationaleDialog() && callOptions.getRationaleDialogMsg() == null && callOptions.getRationaleDialogMsgRes() == 0) {
+        if (needsDefaultRationaleMessage(callOptions)) {
             callOptions.setRationaleDialogMsgRes(dialogText.rationaleDialogMsgRes);
         }
     }
 
-    private String getPermissionGroup(Context context, String permission) {
-        try {
-            return context.getPackageManager().getPermissionInfo(permission, 0).group;
-        } catch (PackageManager.NameNotFoundException e) {
-            Log.e(TAG, "Unable to get permission group", e);
-            return null;
-        }
-    }
-
 }
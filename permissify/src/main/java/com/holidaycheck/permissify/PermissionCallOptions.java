@@ -1,13 +1,20 @@
 package com.holidaycheck.permissify;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.StringRes;
+import android.support.v4.os.CancellationSignal;
 
-import java.io.Serializable;
+import java.util.concurrent.Executor;
 
 /**
  * Options that are associated with Permission Request
  */
-public class PermissionCallOptions implements Serializable {
+public class PermissionCallOptions implements Parcelable {
+
+    private static final int FLAG_SHOW_RATIONALE_DIALOG = 1;
+    private static final int FLAG_RATIONALE_ENABLED = 1 << 1;
+    private static final int FLAG_SHOW_DENY_DIALOG = 1 << 2;
 
     private boolean showRationaleDialog;
     private String rationaleDialogMsg;
@@ -17,6 +24,61 @@ public class PermissionCallOptions implements Serializable {
     private boolean showDenyDialog;
     private String denyDialogMsg;
     private int denyDialogMsgRes;
+    private long timeoutMillis;
+
+    /**
+     * Executor can't be saved with instance state, so after recreation the default one from {@link PermissifyConfig} is used
+     */
+    private Executor resultExecutor;
+
+    /**
+     * Cancellation signal isn't saved with instance state either, so the call can't be cancelled with it after recreation
+     */
+    private CancellationSignal cancellationSignal;
+
+    public PermissionCallOptions() {
+    }
+
+    PermissionCallOptions(Parcel in) {
+        int flags = in.readInt();
+        showRationaleDialog = (flags & FLAG_SHOW_RATIONALE_DIALOG) != 0;
+        rationaleEnabled = (flags & FLAG_RATIONALE_ENABLED) != 0;
+        showDenyDialog = (flags & FLAG_SHOW_DENY_DIALOG) != 0;
+        rationaleDialogMsg = in.readString();
+        rationaleDialogMsgRes = in.readInt();
+        denyDialogMsg = in.readString();
+        denyDialogMsgRes = in.readInt();
+        timeoutMillis = in.readLong();
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt((showRationaleDialog ? FLAG_SHOW_RATIONALE_DIALOG : 0)
+            | (rationaleEnabled ? FLAG_RATIONALE_ENABLED : 0)
+            | (showDenyDialog ? FLAG_SHOW_DENY_DIALOG : 0));
+        dest.writeString(rationaleDialogMsg);
+        dest.writeInt(rationaleDialogMsgRes);
+        dest.writeString(denyDialogMsg);
+        dest.writeInt(denyDialogMsgRes);
+        dest.writeLong(timeoutMillis);
+    }
+
+    public static final Creator<PermissionCallOptions> CREATOR = new Creator<PermissionCallOptions>() {
+        @Override
+        public PermissionCallOptions createFromParcel(Parcel in) {
+            return new PermissionCallOptions(in);
+        }
+
+        @Override
+        public PermissionCallOptions[] newArray(int size) {
+            return new PermissionCallOptions[size];
+        }
+    };
 
     boolean showRationaleDialog() {
         return showRationaleDialog;
@@ -46,10 +108,42 @@ public class PermissionCallOptions implements Serializable {
         return rationaleEnabled;
     }
 
+    Executor getResultExecutor() {
+        return resultExecutor;
+    }
+
+    long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    CancellationSignal getCancellationSignal() {
+        return cancellationSignal;
+    }
+
+    PermissionCallOptions copy() {
+        PermissionCallOptions copy = new PermissionCallOptions();
+        copy.showRationaleDialog = showRationaleDialog;
+        copy.rationaleDialogMsg = rationaleDialogMsg;
+        copy.rationaleDialogMsgRes = rationaleDialogMsgRes;
+        copy.rationaleEnabled = rationaleEnabled;
+        copy.showDenyDialog = showDenyDialog;
+        copy.denyDialogMsg = denyDialogMsg;
+        copy.denyDialogMsgRes = denyDialogMsgRes;
+        copy.timeoutMillis = timeoutMillis;
+        copy.resultExecutor = resultExecutor;
+        copy.cancellationSignal = cancellationSignal;
+
+        return copy;
+    }
+
     void setRationaleDialogMsgRes(int rationaleDialogMsgRes) {
         this.rationaleDialogMsgRes = rationaleDialogMsgRes;
     }
 
+    void setShowRationaleDialog(boolean showRationaleDialog) {
+        this.showRationaleDialog = showRationaleDialog;
+    }
+
     void setDenyDialogMsgRes(int denyDialogMsgRes) {
         this.denyDialogMsgRes = denyDialogMsgRes;
     }
@@ -144,6 +238,46 @@ public class PermissionCallOptions implements Serializable {
             return this;
         }
 
+        /**
+         * Sets executor that result of this call is delivered on, instead of delivering it synchronously.
+         * Result is delivered only if the requesting fragment is still attached, or the requesting activity is neither finishing nor destroyed, at that time.
+         *
+         * @param executor - executor that result is delivered on
+         */
+        public Builder withResultExecutor(Executor executor) {
+            buildObj.resultExecutor = executor;
+
+            return this;
+        }
+
+        /**
+         * Sets time after which the call is finished with {@link PermissifyManager.CallRequestStatus#REQUEST_TIMED_OUT}
+         * if it is still waiting for rationale or system request. By default calls don't time out.
+         *
+         * @param timeoutMillis - timeout of the call, 0 disables it
+         */
+        public Builder withTimeout(long timeoutMillis) {
+            if (timeoutMillis < 0) {
+                throw new IllegalArgumentException("Timeout can't be negative");
+            }
+
+            buildObj.timeoutMillis = timeoutMillis;
+
+            return this;
+        }
+
+        /**
+         * Sets signal that cancels the call, it is finished with {@link PermissifyManager.CallRequestStatus#REQUEST_CANCELLED}.
+         * Signal can be used only with a single call.
+         *
+         * @param cancellationSignal - signal that cancels the call
+         */
+        public Builder withCancellationSignal(CancellationSignal cancellationSignal) {
+            buildObj.cancellationSignal = cancellationSignal;
+
+            return this;
+        }
+
         /**
          * Sets whether or not default deny dialog should be used.
          *
@@ -0,0 +1,17 @@
+package com.holidaycheck.permissify;
+
+/**
+ * State of pending permission call that {@link PermissionCallTable} works with. It doesn't depend on Android, PermissifyManager extends it
+ * with data of the requesting component and saves it with instance state.
+ */
+class PermissionCallState {
+
+    int callId;
+    String[] permissions;
+    boolean coalesced;
+    int inFlightCallId;
+    boolean systemRequestInFlight;
+    String requestToken;
+    long pendingSince;
+    long deadline;
+}
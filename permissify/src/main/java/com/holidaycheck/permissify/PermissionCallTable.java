@@ -0,0 +1,472 @@
+package com.holidaycheck.permissify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * State machine of permission calls that wait for rationale or system request: the table of pending calls, coalescing of calls for the same
+ * permissions, eviction of the oldest call when the table is full, timeouts, system requests and matching of their results by request token.
+ * It depends only on {@link PermissionPlatform} and {@link Scheduler}, so permission flows can run on a plain JVM, e.g. against
+ * {@link SimulatedPermissionPlatform}. PermissifyManager adds dialogs, callbacks and saved state on top of it.
+ *
+ * It is not thread safe, it has to be used on a single thread. Only results of system requests are passed to {@link Listener#onRequestResult}
+ * on the thread that the platform delivers them on.
+ *
+ * @param <C> - type of pending calls
+ */
+class PermissionCallTable<C extends PermissionCallTable.Call> {
+
+    private final TreeMap<Integer, C> calls = new TreeMap<>();
+    private final PermissionPlatform platform;
+    private final Scheduler scheduler;
+    private final int maxPendingCalls;
+    private final Listener<C> listener;
+    private final Runnable timeoutCheck = new Runnable() {
+        @Override
+        public void run() {
+            finishTimedOutCalls();
+        }
+    };
+
+    PermissionCallTable(PermissionPlatform platform, Scheduler scheduler, int maxPendingCalls, Listener<C> listener) {
+        this.platform = platform;
+        this.scheduler = scheduler;
+        this.maxPendingCalls = maxPendingCalls;
+        this.listener = listener;
+    }
+
+    /**
+     * Gets pending call with given id
+     *
+     * @return pending call or null if there is no such call
+     */
+    C get(int callId) {
+        return calls.get(callId);
+    }
+
+    boolean isPending(int callId) {
+        return calls.containsKey(callId);
+    }
+
+    int size() {
+        return calls.size();
+    }
+
+    /**
+     * Gets pending calls ordered by call id
+     */
+    List<C> getCalls() {
+        return new ArrayList<>(calls.values());
+    }
+
+    /**
+     * Finds call that is already waiting for rationale or system request and that covers all given permissions
+     *
+     * @return in-flight call or null if there is no such call
+     */
+    C findInFlightCall(int callId, String[] permissions) {
+        for (C inFlightCall : calls.values()) {
+            PermissionCallState state = inFlightCall.getState();
+
+            if (!state.coalesced && state.callId != callId && containsAll(state.permissions, permissions)) {
+                return inFlightCall;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Adds call to the table. When the table is full, the oldest call is evicted to make room for it
+     * and finished with {@link PermissifyManager.CallRequestStatus#REQUEST_EVICTED}.
+     *
+     * @param retainedCall - call that can't be evicted, e.g. in-flight call that the added call is coalesced with, or null
+     */
+    void add(C call, C retainedCall) {
+        if (calls.size() >= maxPendingCalls) {
+            C evictedCall = findEvictableCall(retainedCall);
+            if (evictedCall != null) {
+                finish(evictedCall, PermissifyManager.CallRequestStatus.REQUEST_EVICTED);
+            }
+        }
+
+        PermissionCallState state = call.getState();
+        long now = scheduler.now();
+        long timeoutMillis = call.getTimeoutMillis();
+        state.pendingSince = now;
+        state.deadline = timeoutMillis > 0 ? now + timeoutMillis : 0;
+        calls.put(state.callId, call);
+
+        if (state.deadline > 0) {
+            scheduleTimeoutCheck();
+        }
+    }
+
+    /**
+     * Makes call wait for the result of in-flight call instead of making its own system request or showing another rationale dialog.
+     * Call that is not pending yet is added to the table.
+     */
+    void coalesce(C call, C inFlightCall) {
+        PermissionCallState state = call.getState();
+        state.coalesced = true;
+        state.inFlightCallId = inFlightCall.getState().callId;
+        state.requestToken = inFlightCall.getState().requestToken;
+
+        if (calls.get(state.callId) != call) {
+            add(call, inFlightCall);
+        }
+    }
+
+    /**
+     * Makes system request for pending call. Calls coalesced with it wait for the same request, which is told apart from other requests
+     * with the same request code by its token.
+     *
+     * @param permissions - permissions to request, they can differ from permissions of the call, e.g. when some of them are already granted
+     */
+    void request(C call, String[] permissions) {
+        PermissionCallState state = call.getState();
+        String requestToken = UUID.randomUUID().toString();
+        state.systemRequestInFlight = true;
+        state.requestToken = requestToken;
+
+        for (C coalescedCall : calls.values()) {
+            PermissionCallState coalescedState = coalescedCall.getState();
+            if (coalescedState.coalesced && coalescedState.inFlightCallId == state.callId) {
+                coalescedState.requestToken = requestToken;
+            }
+        }
+
+        platform.requestPermissions(permissions, state.callId, new SystemRequestListener(requestToken));
+    }
+
+    /**
+     * Removes call from the table and finishes it with given status. Calls coalesced with it are not finished, as they have their own
+     * timeouts and can be cancelled on their own. Calls that wait for its system request still get the result of it, calls that wait
+     * for its rationale are taken over by the one that waits the longest, see {@link Listener#onCallPromoted}.
+     *
+     * @return false if the call is not pending anymore
+     */
+    boolean finish(C call, PermissifyManager.CallRequestStatus status) {
+        PermissionCallState state = call.getState();
+        if (calls.get(state.callId) != call) {
+            return false;
+        }
+
+        calls.remove(state.callId);
+        List<C> promotedCalls = state.coalesced || state.systemRequestInFlight ? Collections.<C>emptyList() : promoteCoalescedCalls(state.callId);
+
+        listener.onCallFinished(call, status);
+        for (C promotedCall : promotedCalls) {
+            listener.onCallPromoted(promotedCall);
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes call from the table without finishing it
+     *
+     * @return false if the call is not pending anymore
+     */
+    boolean remove(C call) {
+        int callId = call.getState().callId;
+        if (calls.get(callId) != call) {
+            return false;
+        }
+
+        calls.remove(callId);
+        return true;
+    }
+
+    /**
+     * Puts back calls that were saved with instance state, they keep their deadlines
+     */
+    void restore(List<C> restoredCalls) {
+        for (C call : restoredCalls) {
+            calls.put(call.getState().callId, call);
+        }
+
+        scheduleTimeoutCheck();
+    }
+
+    /**
+     * Stops checking timeouts, pending calls stay in the table
+     */
+    void release() {
+        scheduler.cancel(timeoutCheck);
+    }
+
+    /**
+     * Checks whether or not result of given request is awaited by a call in the table
+     *
+     * @param requestToken - token of the system request, null when any call with given request code matches
+     */
+    boolean awaitsResult(int requestCode, String requestToken) {
+        for (C call : calls.values()) {
+            PermissionCallState state = call.getState();
+            boolean waitsForRequest = state.coalesced ? state.inFlightCallId == requestCode
+                : state.callId == requestCode && (requestToken == null || state.systemRequestInFlight);
+
+            if (waitsForRequest && (requestToken == null || requestToken.equals(state.requestToken))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes call that made given request
+     *
+     * @param requestToken - token of the system request, null when any call with given request code matches
+     * @return the call or null if it is not pending anymore, e.g. when it was cancelled, or its id was given to a call that waits for another request
+     */
+    C removeRequestingCall(int requestCode, String requestToken) {
+        C call = calls.get(requestCode);
+        if (call == null || call.getState().coalesced || requestToken != null && !requestToken.equals(call.getState().requestToken)) {
+            return null;
+        }
+
+        calls.remove(requestCode);
+        return call;
+    }
+
+    /**
+     * Removes calls that are waiting for the result of given in-flight call
+     *
+     * @param requestToken - token of the system request that the calls wait for, null to remove all of them
+     * @return removed calls ordered by call id
+     */
+    List<C> removeCoalescedCalls(int inFlightCallId, String requestToken) {
+        List<C> coalescedCalls = null;
+
+        for (C call : calls.values()) {
+            PermissionCallState state = call.getState();
+
+            if (state.coalesced && state.inFlightCallId == inFlightCallId && (requestToken == null || requestToken.equals(state.requestToken))) {
+                if (coalescedCalls == null) {
+                    coalescedCalls = new ArrayList<>();
+                }
+                coalescedCalls.add(call);
+            }
+        }
+
+        if (coalescedCalls == null) {
+            return Collections.emptyList();
+        }
+
+        for (C coalescedCall : coalescedCalls) {
+            calls.remove(coalescedCall.getState().callId);
+        }
+
+        return coalescedCalls;
+    }
+
+    /**
+     * Gets status of permission that was granted or denied by the user
+     */
+    PermissifyManager.CallRequestStatus getStatus(String permission, boolean granted) {
+        if (granted) {
+            return PermissifyManager.CallRequestStatus.PERMISSION_GRANTED;
+        }
+
+        return platform.shouldShowRationale(permission) ?
+            PermissifyManager.CallRequestStatus.PERMISSION_DENIED_ONCE : PermissifyManager.CallRequestStatus.PERMISSION_DENIED_FOREVER;
+    }
+
+    /**
+     * Makes calls that waited for rationale of finished in-flight call in-flight calls on their own. The call that waits the longest
+     * is promoted first and the other calls whose permissions it covers are coalesced with it.
+     *
+     * @return promoted calls
+     */
+    private List<C> promoteCoalescedCalls(int inFlightCallId) {
+        List<C> waitingCalls = new ArrayList<>();
+        for (C call : calls.values()) {
+            PermissionCallState state = call.getState();
+            if (state.coalesced && state.inFlightCallId == inFlightCallId) {
+                waitingCalls.add(call);
+            }
+        }
+
+        if (waitingCalls.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<C> promotedCalls = new ArrayList<>();
+        while (!waitingCalls.isEmpty()) {
+            C promotedCall = waitingCalls.get(0);
+            for (C waitingCall : waitingCalls) {
+                if (waitingCall.getState().pendingSince < promotedCall.getState().pendingSince) {
+                    promotedCall = waitingCall;
+                }
+            }
+
+            PermissionCallState promotedState = promotedCall.getState();
+            promotedState.coalesced = false;
+            promotedState.inFlightCallId = 0;
+            promotedState.requestToken = null;
+            waitingCalls.remove(promotedCall);
+            promotedCalls.add(promotedCall);
+
+            for (int i = waitingCalls.size() - 1; i >= 0; i--) {
+                PermissionCallState waitingState = waitingCalls.get(i).getState();
+                if (containsAll(promotedState.permissions, waitingState.permissions)) {
+                    waitingState.inFlightCallId = promotedState.callId;
+                    waitingCalls.remove(i);
+                }
+            }
+        }
+
+        return promotedCalls;
+    }
+
+    /**
+     * Finds the oldest pending call, preferably one that doesn't wait for system request, as its result is going to come soon
+     */
+    private C findEvictableCall(C retainedCall) {
+        C oldestCall = null;
+
+        for (C call : calls.values()) {
+            if (call == retainedCall) {
+                continue;
+            }
+
+            PermissionCallState state = call.getState();
+            PermissionCallState oldestState = oldestCall != null ? oldestCall.getState() : null;
+            if (oldestState == null
+                || oldestState.systemRequestInFlight && !state.systemRequestInFlight
+                || oldestState.systemRequestInFlight == state.systemRequestInFlight && state.pendingSince < oldestState.pendingSince) {
+                oldestCall = call;
+            }
+        }
+
+        return oldestCall;
+    }
+
+    private void scheduleTimeoutCheck() {
+        long nextDeadline = Long.MAX_VALUE;
+        for (C call : calls.values()) {
+            long deadline = call.getState().deadline;
+            if (deadline > 0 && deadline < nextDeadline) {
+                nextDeadline = deadline;
+            }
+        }
+
+        scheduler.cancel(timeoutCheck);
+        if (nextDeadline != Long.MAX_VALUE) {
+            scheduler.schedule(timeoutCheck, Math.max(0, nextDeadline - scheduler.now()));
+        }
+    }
+
+    private void finishTimedOutCalls() {
+        long now = scheduler.now();
+        List<C> timedOutCalls = new ArrayList<>();
+
+        for (C call : calls.values()) {
+            long deadline = call.getState().deadline;
+            if (deadline > 0 && deadline <= now) {
+                timedOutCalls.add(call);
+            }
+        }
+
+        for (C timedOutCall : timedOutCalls) {
+            finish(timedOutCall, PermissifyManager.CallRequestStatus.REQUEST_TIMED_OUT);
+        }
+
+        scheduleTimeoutCheck();
+    }
+
+    private static boolean containsAll(String[] permissions, String[] requiredPermissions) {
+        for (String requiredPermission : requiredPermissions) {
+            if (indexOf(permissions, requiredPermission) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int indexOf(String[] permissions, String permission) {
+        for (int i = 0; i < permissions.length; i++) {
+            if (permission.equals(permissions[i])) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Passes result of one system request to the listener together with its token
+     */
+    private class SystemRequestListener implements PermissionPlatform.ResultListener {
+
+        private final String requestToken;
+
+        SystemRequestListener(String requestToken) {
+            this.requestToken = requestToken;
+        }
+
+        @Override
+        public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+            listener.onRequestResult(requestCode, requestToken, permissions, grantResults);
+        }
+    }
+
+    /**
+     * Pending call in the table
+     */
+    interface Call {
+
+        PermissionCallState getState();
+
+        /**
+         * Gets time after which the call is finished with {@link PermissifyManager.CallRequestStatus#REQUEST_TIMED_OUT}, 0 for no timeout
+         */
+        long getTimeoutMillis();
+    }
+
+    /**
+     * Clock and scheduler of timeout checks, e.g. the main thread handler
+     */
+    interface Scheduler {
+
+        /**
+         * Gets current time in milliseconds, e.g. elapsed realtime
+         */
+        long now();
+
+        void schedule(Runnable task, long delayMillis);
+
+        void cancel(Runnable task);
+    }
+
+    /**
+     * Receives calls that the table finished and results of system requests
+     */
+    interface Listener<C> {
+
+        /**
+         * Called when call is finished before the result of system request comes, i.e. it was cancelled, it timed out or it was evicted.
+         * The call is already removed from the table.
+         */
+        void onCallFinished(C call, PermissifyManager.CallRequestStatus status);
+
+        /**
+         * Called when call that waited for rationale of in-flight call becomes in-flight call itself, because the in-flight call was finished
+         * before its rationale was confirmed. Other calls can be coalesced with it.
+         */
+        void onCallPromoted(C call);
+
+        /**
+         * Receives result of system request, on the thread that the platform delivered it on
+         *
+         * @param requestToken - token of the request, see {@link #removeRequestingCall} and {@link #removeCoalescedCalls}
+         */
+        void onRequestResult(int requestCode, String requestToken, String[] permissions, int[] grantResults);
+    }
+}
@@ -11,21 +11,45 @@ import android.support.annotation.NonNull;
 import android.support.v4.app.DialogFragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v7.app.AlertDialog;
-import android.util.Log;
 
 public class PermissionDeniedInfoDialogFragment extends DialogFragment implements DialogInterface.OnClickListener {
 
     private static final String TAG = "Permissify";
     private static final String ARG_PENDING_CALL = "pendingCall";
 
+    private boolean viewDestroyed;
+
     @NonNull
     @Override
     public Dialog onCreateDialog(Bundle savedInstanceState) {
-        PermissifyManager.PendingPermissionCall pendingCall = (PermissifyManager.PendingPermissionCall) getArguments().getSerializable(ARG_PENDING_CALL);
+        PermissifyTracer tracer = PermissifyConfig.get().getTracer();
+        tracer.beginSection("Permissify#createDenyDialog");
+        try {
+            PermissifyManager.PendingPermissionCall pendingCall = getArguments().getParcelable(ARG_PENDING_CALL);
+            viewDestroyed = false;
+
+            return PermissifyConfig.get()
+                .getDenyDialogFactory()
+                .createDialog(getContext(), getDialogMessage(pendingCall.options), this);
+        } finally {
+            tracer.endSection();
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        viewDestroyed = true;
+        super.onDestroyView();
+    }
+
+    @Override
+    public void onDismiss(DialogInterface dialog) {
+        super.onDismiss(dialog);
 
-        return PermissifyConfig.get()
-            .getDenyDialogFactory()
-            .createDialog(getContext(), getDialogMessage(pendingCall.options), this);
+        // dialog is also dismissed when its view is destroyed on configuration change, it is shown again afterwards
+        if (!viewDestroyed && getActivity() instanceof PermissifyActivity) {
+            ((PermissifyActivity) getActivity()).getPermissifyManager().getLifecycleHandler().onDialogDismissed();
+        }
     }
 
     @Override
@@ -40,13 +64,8 @@ public class PermissionDeniedInfoDialogFragment extends DialogFragment implement
     }
 
     public static void showDialog(FragmentManager fragmentManager, PermissifyManager.PendingPermissionCall pendingPermissionCall) {
-        if (fragmentManager.findFragmentByTag(TAG) != null) {
-            Log.w(TAG, "Dialog is already on screen - rejecting show command");
-            return;
-        }
-
         Bundle args = new Bundle();
-        args.putSerializable(ARG_PENDING_CALL, pendingPermissionCall);
+        args.putParcelable(ARG_PENDING_CALL, pendingPermissionCall);
 
         PermissionDeniedInfoDialogFragment dialog = new PermissionDeniedInfoDialogFragment();
         dialog.setArguments(args);
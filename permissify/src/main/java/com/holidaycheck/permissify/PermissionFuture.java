@@ -0,0 +1,256 @@
+package com.holidaycheck.permissify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of asynchronous permission request {@link PermissifyManager#requestAsync}. Listeners are called on the executor that was passed with the request.
+ *
+ * The future completes with the final status of the request, rationale is shown with the default rationale dialog in the meantime.
+ * Request that is interrupted, or whose activity finishes before the result comes, completes with {@link PermissifyManager.CallRequestStatus#REQUEST_CANCELLED}.
+ * Cancelling the future cancels the request as well.
+ */
+public class PermissionFuture implements Future<PermissifyManager.CallRequestStatus> {
+
+    /**
+     * Call id of future whose request is not made yet
+     */
+    public static final int NO_CALL_ID = -1;
+
+    private final Executor executor;
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private volatile PermissifyManager.CallRequestStatus status;
+    private volatile boolean cancelled;
+    private volatile Runnable cancelAction;
+    private volatile int callId;
+
+    PermissionFuture(int callId, Executor executor) {
+        this.callId = callId;
+        this.executor = executor;
+    }
+
+    /**
+     * Gets identifier that is associated with this permission call, e.g. to find its transitions in {@link PermissifyFlightRecorder}.
+     * Requests of {@link PermissifyCoordinator} get the id of the call that they are requested with, they have {@link #NO_CALL_ID} before that.
+     */
+    public int getCallId() {
+        return callId;
+    }
+
+    void setCallId(int callId) {
+        this.callId = callId;
+    }
+
+    /**
+     * Adds listener that is notified on the request executor when the request completes. If it is already completed, the listener is notified right away.
+     *
+     * @return this future, so listeners can be chained
+     */
+    public PermissionFuture addListener(Listener listener) {
+        synchronized (this) {
+            if (!isDone()) {
+                listeners.add(listener);
+                return this;
+            }
+        }
+
+        if (!cancelled) {
+            notifyListener(listener, status);
+        }
+
+        return this;
+    }
+
+    /**
+     * Creates future that completes with the status of this one changed by given transformation, e.g. to continue with another status
+     * when permission is denied. The transformation is called on given executor and listeners of the new future are notified on it as well.
+     * Cancelling either of the futures cancels the other one, and so the request.
+     *
+     * @param transformation - transformation of the status of this future
+     * @param executor       - executor that the transformation is called on
+     * @return future that completes with the transformed status
+     */
+    public PermissionFuture then(Transformation transformation, Executor executor) {
+        final PermissionFuture transformedFuture = new PermissionFuture(callId, executor);
+        transformedFuture.setCancelAction(new Runnable() {
+            @Override
+            public void run() {
+                cancel(false);
+            }
+        });
+
+        addListener(new Transformer(transformation, transformedFuture));
+        if (cancelled) {
+            transformedFuture.cancel(false);
+        }
+
+        return transformedFuture;
+    }
+
+    /**
+     * Sets action that cancels the request when the future is cancelled, instead of cancelling the call with the same id.
+     * It has to be set before the future is handed out.
+     */
+    void setCancelAction(Runnable cancelAction) {
+        this.cancelAction = cancelAction;
+    }
+
+    boolean complete(PermissifyManager.CallRequestStatus status) {
+        List<Listener> completedListeners;
+
+        synchronized (this) {
+            if (isDone()) {
+                return false;
+            }
+
+            this.status = status;
+            completedListeners = new ArrayList<>(listeners);
+            listeners.clear();
+            latch.countDown();
+        }
+
+        for (Listener listener : completedListeners) {
+            notifyListener(listener, status);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        List<Listener> cancelledListeners;
+
+        synchronized (this) {
+            if (isDone()) {
+                return false;
+            }
+
+            cancelled = true;
+            cancelledListeners = new ArrayList<>(listeners);
+            listeners.clear();
+            latch.countDown();
+        }
+
+        for (Listener listener : cancelledListeners) {
+            if (listener instanceof Transformer) {
+                ((Transformer) listener).transformedFuture.cancel(mayInterruptIfRunning);
+            }
+        }
+
+        Runnable action = cancelAction;
+        if (action != null) {
+            action.run();
+        } else {
+            PermissifyManager.cancelAsyncCall(callId);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return status != null || cancelled;
+    }
+
+    @Override
+    public PermissifyManager.CallRequestStatus get() throws InterruptedException {
+        latch.await();
+        return getStatus();
+    }
+
+    @Override
+    public PermissifyManager.CallRequestStatus get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException("Permission request " + callId + " did not complete in " + timeout + " " + unit);
+        }
+
+        return getStatus();
+    }
+
+    private PermissifyManager.CallRequestStatus getStatus() {
+        if (cancelled) {
+            throw new CancellationException("Permission request " + callId + " was cancelled");
+        }
+
+        return status;
+    }
+
+    private void notifyListener(final Listener listener, final PermissifyManager.CallRequestStatus status) {
+        if (listener instanceof Transformer) {
+            // transformer is called on the executor of the transformed future
+            listener.onComplete(status);
+            return;
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onComplete(status);
+            }
+        });
+    }
+
+    /**
+     * Listener that is notified when permission request completes
+     */
+    public interface Listener {
+
+        /**
+         * Delivers the status of completed permission request
+         *
+         * @param status - status of permission request
+         */
+        void onComplete(PermissifyManager.CallRequestStatus status);
+    }
+
+    /**
+     * Transformation of the status of completed permission request, see {@link #then}
+     */
+    public interface Transformation {
+
+        /**
+         * Transforms the status of completed permission request
+         *
+         * @param status - status of permission request
+         * @return status that the transformed future completes with
+         */
+        PermissifyManager.CallRequestStatus apply(PermissifyManager.CallRequestStatus status);
+    }
+
+    /**
+     * Completes the transformed future with transformed status on its executor
+     */
+    private static class Transformer implements Listener {
+
+        final Transformation transformation;
+        final PermissionFuture transformedFuture;
+
+        Transformer(Transformation transformation, PermissionFuture transformedFuture) {
+            this.transformation = transformation;
+            this.transformedFuture = transformedFuture;
+        }
+
+        @Override
+        public void onComplete(final PermissifyManager.CallRequestStatus status) {
+            transformedFuture.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    transformedFuture.complete(transformation.apply(status));
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.holidaycheck.permissify;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Snapshot of grant state of every permission requested in the app manifest that can be denied, kept as a bitset.
+ * Normal permissions requested in the manifest are always granted at install time, so they are neither checked nor refreshed.
+ * Every other protection level, including signature and appop permissions, is part of the bitset.
+ * Permissions that are not declared in the manifest are always checked against the system.
+ * The bitset is replaced as a whole on every change, so it can be read from any thread.
+ * Positions in the bitset are assigned once {@link PermissionInfoCache} is warmed up, until then every permission is checked against the system,
+ * so the calling thread doesn't have to query PackageManager.
+ */
+class PermissionGrantState {
+
+    private static volatile PermissionOrdinals sOrdinals;
+
+    private final Context context;
+    private final PermissionPlatform platform;
+    private volatile long[] grantedBits;
+
+    PermissionGrantState(Context context, PermissionPlatform platform) {
+        this.context = context;
+        this.platform = platform;
+    }
+
+    /**
+     * Checks whether or not permission is granted according to the last snapshot
+     */
+    boolean isGranted(String permission) {
+        PermissionOrdinals ordinals = getOrdinals();
+        if (ordinals == null) {
+            return checkSelfPermission(permission);
+        }
+
+        int ordinal = ordinals.indexOf(permission);
+
+        if (ordinal < 0) {
+            return ordinals.installTimePermissions.contains(permission) || checkSelfPermission(permission);
+        }
+
+        long[] bits = grantedBits;
+        if (bits == null) {
+            bits = refresh(ordinals);
+        }
+
+        return (bits[ordinal >> 6] & (1L << ordinal)) != 0;
+    }
+
+    private long[] refresh(PermissionOrdinals ordinals) {
+        String[] permissions = ordinals.permissions;
+        long[] bits = new long[(permissions.length + 63) >> 6];
+
+        for (int i = 0; i < permissions.length; i++) {
+            if (checkSelfPermission(permissions[i])) {
+                bits[i >> 6] |= 1L << i;
+            }
+        }
+
+        grantedBits = bits;
+        return bits;
+    }
+
+    /**
+     * Takes new snapshot of grant state, e.g. when user could have changed permissions in the app settings,
+     * and notifies observer about every permission whose state is different than in the previous snapshot.
+     * Nothing is reported when there was no previous snapshot.
+     */
+    void refresh(PermissionStateObserver observer) {
+        PermissionOrdinals ordinals = getOrdinals();
+        if (ordinals == null) {
+            return;
+        }
+
+        long[] previousBits = grantedBits;
+        long[] bits = refresh(ordinals);
+
+        if (previousBits == null) {
+            return;
+        }
+
+        String[] permissions = ordinals.permissions;
+        for (int word = 0; word < bits.length; word++) {
+            long changed = bits[word] ^ previousBits[word];
+
+            while (changed != 0) {
+                int bit = Long.numberOfTrailingZeros(changed);
+                changed &= changed - 1;
+                observer.onPermissionStateChanged(permissions[(word << 6) + bit], (bits[word] & (1L << bit)) != 0);
+            }
+        }
+    }
+
+    /**
+     * Updates grant state of permission without asking the system, e.g. with grant results of permission request
+     *
+     * @return true - grant state of permission changed
+     */
+    boolean update(String permission, boolean granted) {
+        PermissionOrdinals ordinals = getOrdinals();
+        int ordinal = ordinals != null ? ordinals.indexOf(permission) : -1;
+        long[] bits = grantedBits;
+
+        if (ordinal < 0 || bits == null || ((bits[ordinal >> 6] & (1L << ordinal)) != 0) == granted) {
+            return false;
+        }
+
+        bits = bits.clone();
+        if (granted) {
+            bits[ordinal >> 6] |= 1L << ordinal;
+        } else {
+            bits[ordinal >> 6] &= ~(1L << ordinal);
+        }
+        grantedBits = bits;
+        return true;
+    }
+
+    private boolean checkSelfPermission(String permission) {
+        return platform.isGranted(permission);
+    }
+
+    /**
+     * Gets positions of permissions in the bitset
+     *
+     * @return positions or null if {@link PermissionInfoCache} is not warmed up yet
+     */
+    @Nullable
+    private PermissionOrdinals getOrdinals() {
+        PermissionOrdinals ordinals = sOrdinals;
+
+        if (ordinals == null) {
+            PermissionInfoCache infoCache = PermissionInfoCache.get();
+            if (!infoCache.isWarmedUp()) {
+                // e.g. Permissify was initialized without context, so nothing has started the warm up yet
+                infoCache.warmUp(context);
+                return null;
+            }
+
+            ordinals = createOrdinals(infoCache);
+            sOrdinals = ordinals;
+        }
+
+        return ordinals;
+    }
+
+    private PermissionOrdinals createOrdinals(PermissionInfoCache infoCache) {
+        List<String> checkedPermissions = new ArrayList<>();
+        Set<String> installTimePermissions = new HashSet<>();
+
+        for (String permission : infoCache.getRequestedPermissions(context)) {
+            if (infoCache.isGrantedAtInstall(context, permission)) {
+                installTimePermissions.add(permission);
+            } else {
+                checkedPermissions.add(permission);
+            }
+        }
+
+        return new PermissionOrdinals(checkedPermissions.toArray(new String[checkedPermissions.size()]), installTimePermissions);
+    }
+
+    /**
+     * Table that assigns every permission requested in the app manifest that is not granted at install time its position in the bitset
+     */
+    private static class PermissionOrdinals {
+
+        final String[] permissions;
+        final HashMap<String, Integer> ordinals;
+        final Set<String> installTimePermissions;
+
+        PermissionOrdinals(String[] permissions, Set<String> installTimePermissions) {
+            this.permissions = permissions;
+            this.installTimePermissions = installTimePermissions;
+            this.ordinals = new HashMap<>(permissions.length * 2);
+
+            for (int i = 0; i < permissions.length; i++) {
+                ordinals.put(permissions[i], i);
+            }
+        }
+
+        int indexOf(String permission) {
+            Integer ordinal = ordinals.get(permission);
+            return ordinal != null ? ordinal : -1;
+        }
+    }
+
+}
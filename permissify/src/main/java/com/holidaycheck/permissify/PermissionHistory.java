@@ -0,0 +1,218 @@
+package com.holidaycheck.permissify;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process wide history of system permission requests (request count, last outcome and time of last request) that is kept in SharedPreferences.
+ * It lets Permissify tell "never asked" from "denied forever", which {@link android.app.Activity#shouldShowRequestPermissionRationale} can't.
+ * History is loaded on a background thread and changes are written in batches, so recording results never touches the disk on the calling thread.
+ */
+class PermissionHistory {
+
+    private static final String TAG = "Permissify";
+    private static final String LOAD_THREAD_NAME = "Permissify-History";
+    private static final String PREFS_NAME = "com.holidaycheck.permissify.history";
+    private static final String KEY_FIRST_INSTALL_TIME = "#firstInstallTime";
+    private static final long FLUSH_DELAY_MS = 1000;
+
+    /**
+     * The user can reset "never ask again" in the app settings, and newer systems reset unused permissions on their own, without any change
+     * of grant state that could be noticed. So denial is trusted only for limited time, then the system is asked again.
+     */
+    static final long DENIED_FOREVER_MAX_AGE_MS = 24 * 60 * 60 * 1000L;
+
+    static final int OUTCOME_GRANTED = 0;
+    static final int OUTCOME_DENIED_ONCE = 1;
+    static final int OUTCOME_DENIED_FOREVER = 2;
+
+    private static final PermissionHistory sInstance = new PermissionHistory();
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> dirtyPermissions = new HashSet<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private volatile SharedPreferences preferences;
+    private volatile boolean loaded;
+
+    static PermissionHistory get() {
+        return sInstance;
+    }
+
+    private PermissionHistory() {
+    }
+
+    /**
+     * Loads history on a background thread. Until it is loaded no permission is considered denied forever.
+     */
+    void load(Context context) {
+        final Context appContext = context.getApplicationContext();
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                long firstInstallTime = getFirstInstallTime(appContext);
+
+                // permissions are reset on reinstall, but preferences can be brought back by backup
+                if (prefs.getLong(KEY_FIRST_INSTALL_TIME, 0) != firstInstallTime) {
+                    prefs.edit().clear().putLong(KEY_FIRST_INSTALL_TIME, firstInstallTime).apply();
+                } else {
+                    for (Map.Entry<String, ?> prefsEntry : prefs.getAll().entrySet()) {
+                        Entry entry = prefsEntry.getValue() instanceof String ? Entry.decode((String) prefsEntry.getValue()) : null;
+                        if (entry != null) {
+                            entries.putIfAbsent(prefsEntry.getKey(), entry);
+                        }
+                    }
+                }
+
+                preferences = prefs;
+                loaded = true;
+            }
+        }, LOAD_THREAD_NAME);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Checks whether or not last system request for permission ended with "never ask again" and it was made recently enough to be trusted
+     */
+    boolean isDeniedForever(String permission) {
+        if (!loaded) {
+            return false;
+        }
+
+        Entry entry = entries.get(permission);
+        if (entry == null || entry.lastOutcome != OUTCOME_DENIED_FOREVER) {
+            return false;
+        }
+
+        long age = System.currentTimeMillis() - entry.lastRequestTime;
+        return age >= 0 && age <= DENIED_FOREVER_MAX_AGE_MS;
+    }
+
+    /**
+     * Records outcome of system request for permission
+     */
+    void recordRequest(String permission, int outcome, long timestamp) {
+        if (!loaded) {
+            return;
+        }
+
+        Entry entry = entries.get(permission);
+        int requestCount = entry != null ? entry.requestCount + 1 : 1;
+        entries.put(permission, new Entry(requestCount, outcome, timestamp));
+        markDirty(permission);
+    }
+
+    /**
+     * Records that permission is granted, e.g. by the user in app settings, so it is no longer considered denied forever
+     */
+    void recordGranted(String permission) {
+        if (!loaded) {
+            return;
+        }
+
+        Entry entry = entries.get(permission);
+
+        if (entry != null && entry.lastOutcome != OUTCOME_GRANTED) {
+            entries.put(permission, new Entry(entry.requestCount, OUTCOME_GRANTED, entry.lastRequestTime));
+            markDirty(permission);
+        }
+    }
+
+    /**
+     * Gets permissions that were denied forever according to history
+     */
+    Set<String> getDeniedForeverPermissions() {
+        Set<String> permissions = new HashSet<>();
+
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().lastOutcome == OUTCOME_DENIED_FOREVER) {
+                permissions.add(entry.getKey());
+            }
+        }
+
+        return permissions;
+    }
+
+    private void markDirty(String permission) {
+        synchronized (dirtyPermissions) {
+            if (dirtyPermissions.isEmpty()) {
+                handler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+            }
+            dirtyPermissions.add(permission);
+        }
+    }
+
+    private void flush() {
+        SharedPreferences.Editor editor = preferences.edit();
+
+        synchronized (dirtyPermissions) {
+            for (String permission : dirtyPermissions) {
+                editor.putString(permission, entries.get(permission).encode());
+            }
+            dirtyPermissions.clear();
+        }
+
+        editor.apply();
+    }
+
+    private static long getFirstInstallTime(Context context) {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).firstInstallTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.e(TAG, "Unable to get install time", e);
+            return 0;
+        }
+    }
+
+    private static class Entry {
+
+        private static final char SEPARATOR = ';';
+
+        final int requestCount;
+        final int lastOutcome;
+        final long lastRequestTime;
+
+        Entry(int requestCount, int lastOutcome, long lastRequestTime) {
+            this.requestCount = requestCount;
+            this.lastOutcome = lastOutcome;
+            this.lastRequestTime = lastRequestTime;
+        }
+
+        String encode() {
+            return String.valueOf(requestCount) + SEPARATOR + lastOutcome + SEPARATOR + lastRequestTime;
+        }
+
+        static Entry decode(String value) {
+            String[] parts = value.split(String.valueOf(SEPARATOR));
+
+            if (parts.length != 3) {
+                return null;
+            }
+
+            try {
+                return new Entry(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Unable to read permission history", e);
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.holidaycheck.permissify;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.pm.PermissionInfo;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Process wide cache of permission metadata (group and whether or not it is granted at install time) keyed by permission name.
+ * It is filled in the background when Permissify is initialized, so requesting permission doesn't need to call PackageManager.
+ */
+class PermissionInfoCache {
+
+    private static final String TAG = "Permissify";
+    private static final String WARM_UP_THREAD_NAME = "Permissify-PermissionInfo";
+    private static final String[] NO_PERMISSIONS = new String[0];
+
+    private static final PermissionInfoCache sInstance = new PermissionInfoCache();
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean warmUpStarted = new AtomicBoolean();
+    private final CountDownLatch warmUpFinished = new CountDownLatch(1);
+    private volatile String[] requestedPermissions;
+
+    static PermissionInfoCache get() {
+        return sInstance;
+    }
+
+    private PermissionInfoCache() {
+    }
+
+    /**
+     * Loads metadata of every permission requested in the app manifest on a background thread, only the first call starts it.
+     * Warm up is finished also when it fails, metadata that was not loaded is then loaded when it is needed.
+     */
+    void warmUp(Context context) {
+        if (!warmUpStarted.compareAndSet(false, true)) {
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, WARM_UP_THREAD_NAME);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (String permission : getRequestedPermissions(appContext)) {
+                        getEntry(appContext, permission);
+                    }
+                } catch (RuntimeException e) {
+                    // e.g. package manager died, warm up is only an optimization
+                    Log.e(TAG, "Unable to load permission metadata", e);
+                } finally {
+                    warmUpFinished.countDown();
+                }
+            }
+        });
+        // thread finishes once the warm up is done
+        executor.shutdown();
+    }
+
+    /**
+     * Checks whether or not metadata of every permission requested in the app manifest is loaded, so it can be read without calling PackageManager
+     */
+    boolean isWarmedUp() {
+        return warmUpFinished.getCount() == 0;
+    }
+
+    /**
+     * Waits until {@link #warmUp} loads metadata of every permission requested in the app manifest
+     *
+     * @return true - metadata is loaded, false - the timeout elapsed
+     */
+    boolean awaitWarmUp(long timeout, TimeUnit unit) throws InterruptedException {
+        return warmUpFinished.await(timeout, unit);
+    }
+
+    /**
+     * Gets permissions that are requested in the app manifest
+     */
+    @NonNull
+    String[] getRequestedPermissions(Context context) {
+        String[] permissions = requestedPermissions;
+
+        if (permissions == null) {
+            permissions = loadRequestedPermissions(context);
+            requestedPermissions = permissions;
+        }
+
+        return permissions;
+    }
+
+    /**
+     * Gets permission group {@link android.Manifest.permission_group} of permission
+     *
+     * @return permission group or null if permission doesn't belong to any group or is unknown
+     */
+    @Nullable
+    String getPermissionGroup(Context context, String permission) {
+        return getEntry(context, permission).group;
+    }
+
+    /**
+     * Checks whether or not permission requested in the manifest is always granted at install time, i.e. its base protection level is
+     * {@link PermissionInfo#PROTECTION_NORMAL}, e.g. INTERNET. Dangerous permissions are granted at runtime, signature, privileged and appop
+     * permissions, e.g. SYSTEM_ALERT_WINDOW or WRITE_SETTINGS, may not be granted at all.
+     *
+     * @return false - permission is not normal or unknown, so its grant state has to be checked
+     */
+    boolean isGrantedAtInstall(Context context, String permission) {
+        return getEntry(context, permission).grantedAtInstall;
+    }
+
+    @NonNull
+    private Entry getEntry(Context context, String permission) {
+        Entry entry = entries.get(permission);
+
+        if (entry == null) {
+            entry = loadEntry(context, permission);
+            Entry previous = entries.putIfAbsent(permission, entry);
+            if (previous != null) {
+                entry = previous;
+            }
+        }
+
+        return entry;
+    }
+
+    private Entry loadEntry(Context context, String permission) {
+        try {
+            PermissionInfo permissionInfo = context.getPackageManager().getPermissionInfo(permission, 0);
+            return new Entry(permissionInfo.group, (permissionInfo.protectionLevel & PermissionInfo.PROTECTION_MASK_BASE) == PermissionInfo.PROTECTION_NORMAL);
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.e(TAG, "Unable to get permission group", e);
+            return Entry.NOT_FOUND;
+        }
+    }
+
+    private String[] loadRequestedPermissions(Context context) {
+        try {
+            String[] permissions = context.getPackageManager().getPackageInfo(context.getPackageName(), PackageManager.GET_PERMISSIONS).requestedPermissions;
+            return permissions != null ? permissions : NO_PERMISSIONS;
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.e(TAG, "Unable to get requested permissions", e);
+            return NO_PERMISSIONS;
+        }
+    }
+
+    private static class Entry {
+
+        static final Entry NOT_FOUND = new Entry(null, false);
+
+        final String group;
+        final boolean grantedAtInstall;
+
+        Entry(String group, boolean grantedAtInstall) {
+            this.group = group;
+            this.grantedAtInstall = grantedAtInstall;
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.holidaycheck.permissify;
+
+/**
+ * Permission service that PermissifyManager checks and requests permissions with. By default it is the Android permission system,
+ * but different implementation, e.g. {@link SimulatedPermissionPlatform}, can be set with {@link PermissifyConfig.Builder#withPermissionPlatform}
+ * to run permission flows without the system.
+ *
+ * Grant results use the same values as {@link android.content.pm.PackageManager#PERMISSION_GRANTED} and
+ * {@link android.content.pm.PackageManager#PERMISSION_DENIED}.
+ */
+public interface PermissionPlatform {
+
+    /**
+     * Checks whether or not permission is granted
+     */
+    boolean isGranted(String permission);
+
+    /**
+     * Checks whether or not rationale should be shown before permission is requested,
+     * like {@link android.app.Activity#shouldShowRequestPermissionRationale}
+     */
+    boolean shouldShowRationale(String permission);
+
+    /**
+     * Requests permissions. Result can be passed to the listener on any thread, unless the platform delivers it to
+     * {@link android.app.Activity#onRequestPermissionsResult} of {@link PermissifyActivity} on its own.
+     * Listener handles it on the main thread, with the manager of the current activity if the requesting one was recreated in the meantime.
+     * Each request gets its own listener, so results of different requests with the same request code are not mixed up.
+     *
+     * @param permissions - permissions to request
+     * @param requestCode - request code that has to be passed back with the result
+     * @param listener    - listener that receives the result
+     */
+    void requestPermissions(String[] permissions, int requestCode, ResultListener listener);
+
+    /**
+     * Receives result of permission request
+     */
+    interface ResultListener {
+
+        void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults);
+    }
+}
@@ -8,23 +8,57 @@ import android.support.annotation.NonNull;
 import android.support.v4.app.DialogFragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v7.app.AlertDialog;
-import android.util.Log;
 
 public class PermissionRationaleDialogFragment extends DialogFragment implements DialogInterface.OnClickListener {
 
     private static final String TAG = "Permissify";
     private static final String ARG_PENDING_CALL = "pendingCall";
 
+    private boolean viewDestroyed;
+
     private PermissifyManager.PendingPermissionCall pendingCall;
 
     @NonNull
     @Override
     public Dialog onCreateDialog(Bundle savedInstanceState) {
-        pendingCall = (PermissifyManager.PendingPermissionCall) getArguments().getSerializable(ARG_PENDING_CALL);
+        PermissifyTracer tracer = PermissifyConfig.get().getTracer();
+        tracer.beginSection("Permissify#createRationaleDialog");
+        try {
+            pendingCall = getArguments().getParcelable(ARG_PENDING_CALL);
+            viewDestroyed = false;
 
-        return PermissifyConfig.get()
-            .getRationaleDialogFactory()
-            .createDialog(getContext(), getDialogMessage(pendingCall.options), this);
+            return PermissifyConfig.get()
+                .getRationaleDialogFactory()
+                .createDialog(getContext(), getDialogMessage(pendingCall.options), this);
+        } finally {
+            tracer.endSection();
+        }
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+
+        // call could have been finished while the dialog was waiting to be added or while the activity was in background
+        if (getActivity() instanceof PermissifyActivity && !((PermissifyActivity) getActivity()).getPermissifyManager().isPending(pendingCall.getCallId())) {
+            dismissAllowingStateLoss();
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        viewDestroyed = true;
+        super.onDestroyView();
+    }
+
+    @Override
+    public void onDismiss(DialogInterface dialog) {
+        super.onDismiss(dialog);
+
+        // dialog is also dismissed when its view is destroyed on configuration change, it is shown again afterwards
+        if (!viewDestroyed && getActivity() instanceof PermissifyActivity) {
+            ((PermissifyActivity) getActivity()).getPermissifyManager().getLifecycleHandler().onDialogDismissed();
+        }
     }
 
     @Override
@@ -35,13 +69,8 @@ public class PermissionRationaleDialogFragment extends DialogFragment implements
     }
 
     public static void showDialog(FragmentManager fragmentManager, PermissifyManager.PendingPermissionCall pendingPermissionCall) {
-        if (fragmentManager.findFragmentByTag(TAG) != null) {
-            Log.w(TAG, "Dialog is already on screen - rejecting show command");
-            return;
-        }
-
         Bundle args = new Bundle();
-        args.putSerializable(ARG_PENDING_CALL, pendingPermissionCall);
+        args.putParcelable(ARG_PENDING_CALL, pendingPermissionCall);
 
         PermissionRationaleDialogFragment dialog = new PermissionRationaleDialogFragment();
         dialog.setArguments(args);
@@ -0,0 +1,17 @@
+package com.holidaycheck.permissify;
+
+/**
+ * Calls methods annotated with {@link OnPermissionResult}. Implementations are generated by permissify-compiler annotation processor
+ * for every class that has annotated methods, they are not meant to be implemented by hand.
+ *
+ * @param <T> - class with annotated methods
+ */
+public interface PermissionResultDispatcher<T> {
+
+    /**
+     * Calls annotated methods that match given call id and status
+     *
+     * @return true - at least one method was called
+     */
+    boolean dispatch(T host, int callId, PermissifyManager.CallRequestStatus status);
+}
@@ -0,0 +1,83 @@
+package com.holidaycheck.permissify;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds generated {@link PermissionResultDispatcher} of result target class and its superclasses. Dispatchers are looked up once per class,
+ * so dispatching the result doesn't use reflection.
+ */
+class PermissionResultDispatchers {
+
+    private static final String TAG = "Permissify";
+    private static final String DISPATCHER_SUFFIX = "_PermissionResultDispatcher";
+    private static final ConcurrentHashMap<Class<?>, List<PermissionResultDispatcher<Object>>> sDispatchers = new ConcurrentHashMap<>();
+
+    private PermissionResultDispatchers() {
+    }
+
+    /**
+     * Calls methods of the host that are annotated with {@link OnPermissionResult} for given call id and status
+     *
+     * @return true - at least one method was called
+     */
+    static boolean dispatch(Object host, int callId, PermissifyManager.CallRequestStatus status) {
+        List<PermissionResultDispatcher<Object>> dispatchers = getDispatchers(host.getClass());
+        boolean dispatched = false;
+
+        // indexed loop doesn't allocate iterator on every result
+        for (int i = 0; i < dispatchers.size(); i++) {
+            dispatched |= dispatchers.get(i).dispatch(host, callId, status);
+        }
+
+        return dispatched;
+    }
+
+    private static List<PermissionResultDispatcher<Object>> getDispatchers(Class<?> hostClass) {
+        List<PermissionResultDispatcher<Object>> dispatchers = sDispatchers.get(hostClass);
+
+        if (dispatchers == null) {
+            dispatchers = findDispatchers(hostClass);
+            sDispatchers.put(hostClass, dispatchers);
+        }
+
+        return dispatchers;
+    }
+
+    private static List<PermissionResultDispatcher<Object>> findDispatchers(Class<?> hostClass) {
+        List<PermissionResultDispatcher<Object>> dispatchers = new ArrayList<>();
+
+        for (Class<?> cls = hostClass; cls != null && cls != PermissifyActivity.class && !isFrameworkClass(cls.getName()); cls = cls.getSuperclass()) {
+            PermissionResultDispatcher<Object> dispatcher = createDispatcher(cls);
+            if (dispatcher != null) {
+                dispatchers.add(dispatcher);
+            }
+        }
+
+        return dispatchers.isEmpty() ? Collections.<PermissionResultDispatcher<Object>>emptyList() : dispatchers;
+    }
+
+    // dispatcher of a class is generated for that class, so it is only ever called with its instances or instances of its subclasses
+    @SuppressWarnings("unchecked")
+    private static PermissionResultDispatcher<Object> createDispatcher(Class<?> cls) {
+        try {
+            return (PermissionResultDispatcher<Object>) Class.forName(cls.getName() + DISPATCHER_SUFFIX, true, cls.getClassLoader())
+                .getDeclaredConstructor()
+                .newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Exception e) {
+            // reflective exceptions don't share a superclass before API 19, so they can't be caught together
+            Log.e(TAG, "Unable to create permission result dispatcher", e);
+            return null;
+        }
+    }
+
+    private static boolean isFrameworkClass(String className) {
+        return className.startsWith("android.") || className.startsWith("java.");
+    }
+}
@@ -0,0 +1,16 @@
+package com.holidaycheck.permissify;
+
+/**
+ * Observer that is notified when grant state of permission requested in the app manifest changes, e.g. when the user comes back from the app settings.
+ * It is registered with {@link PermissifyManager#addPermissionStateObserver} and it is called on the main thread.
+ */
+public interface PermissionStateObserver {
+
+    /**
+     * Called for every permission whose grant state is different than in the previous snapshot
+     *
+     * @param permission - permission whose state changed
+     * @param granted    - true - permission is granted now, false - permission was revoked
+     */
+    void onPermissionStateChanged(String permission, boolean granted);
+}
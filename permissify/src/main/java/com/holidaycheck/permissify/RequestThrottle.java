@@ -0,0 +1,67 @@
+package com.holidaycheck.permissify;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process wide exponential backoff of permission requests. Every time the user denies permission the time before it can be requested again
+ * is doubled, starting from initial backoff and up to max backoff. Granting the permission resets it.
+ */
+class RequestThrottle {
+
+    private static final RequestThrottle sInstance = new RequestThrottle();
+
+    private final ConcurrentHashMap<String, State> states = new ConcurrentHashMap<>();
+
+    static RequestThrottle get() {
+        return sInstance;
+    }
+
+    private RequestThrottle() {
+    }
+
+    /**
+     * Checks whether or not any of permissions is still in backoff after it was denied
+     */
+    boolean isThrottled(String[] permissions, long initialBackoffMillis, long maxBackoffMillis) {
+        long now = SystemClock.elapsedRealtime();
+
+        for (String permission : permissions) {
+            State state = states.get(permission);
+            if (state != null && now - state.lastDenialTime < getBackoff(state.denialCount, initialBackoffMillis, maxBackoffMillis)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Updates backoff of permission with the result of system request
+     */
+    void onRequestResult(String permission, boolean granted) {
+        if (granted) {
+            states.remove(permission);
+        } else {
+            State state = states.get(permission);
+            states.put(permission, new State(state != null ? state.denialCount + 1 : 1, SystemClock.elapsedRealtime()));
+        }
+    }
+
+    private static long getBackoff(int denialCount, long initialBackoffMillis, long maxBackoffMillis) {
+        int shift = Math.min(denialCount - 1, 62);
+        return initialBackoffMillis > (maxBackoffMillis >> shift) ? maxBackoffMillis : initialBackoffMillis << shift;
+    }
+
+    private static class State {
+
+        final int denialCount;
+        final long lastDenialTime;
+
+        State(int denialCount, long lastDenialTime) {
+            this.denialCount = denialCount;
+            this.lastDenialTime = lastDenialTime;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.holidaycheck.permissify;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory permission service that answers permission requests at random, with configurable probabilities and latency.
+ * It doesn't depend on Android, so it can be used in the app, e.g. for demo builds, as well as on a plain JVM, where the table of pending calls
+ * that PermissifyManager uses is load tested against it without the rest of the manager.
+ *
+ * The user decision is simulated like the system dialog: denied permission asks for rationale next time,
+ * permission denied forever is denied right away without asking.
+ */
+public class SimulatedPermissionPlatform implements PermissionPlatform {
+
+    // same values as PackageManager.PERMISSION_GRANTED and PackageManager.PERMISSION_DENIED
+    private static final int PERMISSION_GRANTED = 0;
+    private static final int PERMISSION_DENIED = -1;
+    private static final String THREAD_NAME = "Permissify-Simulator";
+
+    private enum State {
+        NOT_ASKED, GRANTED, DENIED, DENIED_FOREVER
+    }
+
+    private final ConcurrentHashMap<String, State> states = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final double grantProbability;
+    private final double denyForeverProbability;
+    private final long minLatencyMillis;
+    private final long maxLatencyMillis;
+    private final Random random;
+    private final Executor resultExecutor;
+    private final ScheduledExecutorService scheduler;
+
+    private SimulatedPermissionPlatform(Builder builder) {
+        this.grantProbability = builder.grantProbability;
+        this.denyForeverProbability = builder.denyForeverProbability;
+        this.minLatencyMillis = builder.minLatencyMillis;
+        this.maxLatencyMillis = builder.maxLatencyMillis;
+        this.random = builder.seed != null ? new Random(builder.seed) : new Random();
+        this.resultExecutor = builder.resultExecutor;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public boolean isGranted(String permission) {
+        return getState(permission) == State.GRANTED;
+    }
+
+    @Override
+    public boolean shouldShowRationale(String permission) {
+        return getState(permission) == State.DENIED;
+    }
+
+    @Override
+    public void requestPermissions(final String[] permissions, final int requestCode, final ResultListener listener) {
+        requestCount.incrementAndGet();
+        final int[] grantResults = new int[permissions.length];
+
+        for (int i = 0; i < permissions.length; i++) {
+            State state = decide(getState(permissions[i]));
+            states.put(permissions[i], state);
+            grantResults[i] = state == State.GRANTED ? PERMISSION_GRANTED : PERMISSION_DENIED;
+        }
+
+        final Runnable deliverResult = new Runnable() {
+            @Override
+            public void run() {
+                listener.onRequestPermissionsResult(requestCode, permissions, grantResults);
+            }
+        };
+
+        long latencyMillis = minLatencyMillis + (maxLatencyMillis > minLatencyMillis ? (long) (random.nextDouble() * (maxLatencyMillis - minLatencyMillis)) : 0);
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (resultExecutor != null) {
+                    resultExecutor.execute(deliverResult);
+                } else {
+                    deliverResult.run();
+                }
+            }
+        }, latencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Grants or revokes permission, like the user does in the app settings
+     */
+    public void setGranted(String permission, boolean granted) {
+        states.put(permission, granted ? State.GRANTED : State.NOT_ASKED);
+    }
+
+    /**
+     * Forgets all decisions, like reinstalling the app
+     */
+    public void reset() {
+        states.clear();
+        requestCount.set(0);
+    }
+
+    /**
+     * Gets number of permission requests that were made
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Stops the thread that delivers results. Results of requests that are still in progress are not delivered.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private State getState(String permission) {
+        State state = states.get(permission);
+        return state != null ? state : State.NOT_ASKED;
+    }
+
+    private State decide(State state) {
+        if (state == State.GRANTED || state == State.DENIED_FOREVER) {
+            return state;
+        }
+
+        if (random.nextDouble() < grantProbability) {
+            return State.GRANTED;
+        }
+
+        // like the system dialog, "never ask again" can be chosen only after the permission was denied once
+        return state == State.DENIED && random.nextDouble() < denyForeverProbability ? State.DENIED_FOREVER : State.DENIED;
+    }
+
+    /**
+     * Builder for creating SimulatedPermissionPlatform instance
+     */
+    public static class Builder {
+
+        private double grantProbability = 0.5;
+        private double denyForeverProbability = 0.5;
+        private long minLatencyMillis;
+        private long maxLatencyMillis;
+        private Long seed;
+        private Executor resultExecutor;
+
+        /**
+         * Sets probability that the user grants requested permission, 0.5 by default
+         */
+        public Builder withGrantProbability(double probability) {
+            this.grantProbability = checkProbability(probability);
+            return this;
+        }
+
+        /**
+         * Sets probability that the user who denies permission that was already denied before chooses "never ask again", 0.5 by default
+         */
+        public Builder withDenyForeverProbability(double probability) {
+            this.denyForeverProbability = checkProbability(probability);
+            return this;
+        }
+
+        /**
+         * Sets range of time that it takes the user to answer permission request, there is no latency by default
+         */
+        public Builder withLatency(long minLatencyMillis, long maxLatencyMillis) {
+            if (minLatencyMillis < 0 || maxLatencyMillis < minLatencyMillis) {
+                throw new IllegalArgumentException("Latency has to satisfy 0 <= minLatencyMillis <= maxLatencyMillis");
+            }
+
+            this.minLatencyMillis = minLatencyMillis;
+            this.maxLatencyMillis = maxLatencyMillis;
+            return this;
+        }
+
+        /**
+         * Sets seed of random decisions, so the same sequence of requests gets the same results
+         */
+        public Builder withSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Sets executor that results are delivered on, without executor they are delivered on the simulator thread.
+         * PermissifyManager handles them on the main thread either way.
+         */
+        public Builder withResultExecutor(Executor executor) {
+            this.resultExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Builds instance of SimulatedPermissionPlatform
+         */
+        public SimulatedPermissionPlatform build() {
+            return new SimulatedPermissionPlatform(this);
+        }
+
+        private static double checkProbability(double probability) {
+            if (probability < 0 || probability > 1) {
+                throw new IllegalArgumentException("Probability has to be between 0 and 1");
+            }
+
+            return probability;
+        }
+    }
+}
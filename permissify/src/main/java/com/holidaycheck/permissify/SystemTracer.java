@@ -0,0 +1,33 @@
+package com.holidaycheck.permissify;
+
+import android.support.v4.os.TraceCompat;
+
+/**
+ * Default tracer that writes sections with {@link TraceCompat}. Asynchronous sections aren't available in the framework API
+ * that the library is compiled against, so they are skipped.
+ */
+class SystemTracer implements PermissifyTracer {
+
+    static final SystemTracer INSTANCE = new SystemTracer();
+
+    private SystemTracer() {
+    }
+
+    @Override
+    public void beginSection(String sectionName) {
+        TraceCompat.beginSection(sectionName);
+    }
+
+    @Override
+    public void endSection() {
+        TraceCompat.endSection();
+    }
+
+    @Override
+    public void beginAsyncSection(String sectionName, int callId) {
+    }
+
+    @Override
+    public void endAsyncSection(String sectionName, int callId) {
+    }
+}
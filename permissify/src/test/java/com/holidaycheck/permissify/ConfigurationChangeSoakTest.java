@@ -0,0 +1,62 @@
+package com.holidaycheck.permissify;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Recreates activity thousands of times while calls wait for rationale dialog or system request, like {@link ConfigurationChangeTest},
+ * and also checks save and recreation latency against wall-clock budgets. It runs only in the soak test run.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class ConfigurationChangeSoakTest {
+
+    private static final int WARM_UP_CYCLES = 100;
+    private static final int CYCLES = 2000;
+
+    private static final int MAX_SAVED_STATE_BYTES = 32 * 1024;
+    private static final int MAX_SAVED_STATE_GROWTH_BYTES = 256;
+    private static final long MAX_SAVE_P99_MICROS = 10000;
+    private static final long MAX_RECREATION_P99_MICROS = 100000;
+    private static final long MAX_RETAINED_HEAP_BYTES = 32 * 1024 * 1024;
+
+    private RecreationCycles recreationCycles;
+
+    @Before
+    public void setUp() {
+        recreationCycles = new RecreationCycles();
+    }
+
+    @After
+    public void tearDown() {
+        recreationCycles.destroy();
+    }
+
+    @Test
+    public void pendingCallsSurviveRecreationWithinBudgets() {
+        recreationCycles.run(WARM_UP_CYCLES);
+        long heapBefore = RecreationCycles.getUsedHeap();
+        RecreationCycles.Measurements measurements = recreationCycles.run(CYCLES);
+        long retainedHeap = RecreationCycles.getUsedHeap() - heapBefore;
+
+        long saveP99 = measurements.getSaveMicros(0.99);
+        long recreationP99 = measurements.getRecreationMicros(0.99);
+
+        assertTrue("Saved state has " + measurements.getMaxStateBytes() + " B", measurements.getMaxStateBytes() <= MAX_SAVED_STATE_BYTES);
+        assertTrue("Saved state grew by " + measurements.getStateGrowthBytes() + " B", measurements.getStateGrowthBytes() <= MAX_SAVED_STATE_GROWTH_BYTES);
+        assertTrue("Save p99 is " + saveP99 + " us, p50 " + measurements.getSaveMicros(0.5) + " us", saveP99 <= MAX_SAVE_P99_MICROS);
+        assertTrue("Recreation p99 is " + recreationP99 + " us, p50 " + measurements.getRecreationMicros(0.5) + " us",
+            recreationP99 <= MAX_RECREATION_P99_MICROS);
+        assertTrue("Cycles retained " + retainedHeap + " B of heap", retainedHeap <= MAX_RETAINED_HEAP_BYTES);
+
+        // results of requests made by the first activity reach calls that were restored by the last one
+        assertEquals(RecreationCycles.SYSTEM_REQUEST_CALLS, recreationCycles.grantSystemRequests());
+    }
+}
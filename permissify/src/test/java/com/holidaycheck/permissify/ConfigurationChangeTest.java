@@ -0,0 +1,54 @@
+package com.holidaycheck.permissify;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Recreates activity a few hundred times while calls wait for rationale dialog or system request and checks that none of them is lost,
+ * that saved state doesn't grow and that the cycles don't retain heap. Latency budgets are checked by {@link ConfigurationChangeSoakTest}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class ConfigurationChangeTest {
+
+    private static final int WARM_UP_CYCLES = 20;
+    private static final int CYCLES = 200;
+
+    private static final int MAX_SAVED_STATE_BYTES = 32 * 1024;
+    private static final int MAX_SAVED_STATE_GROWTH_BYTES = 256;
+    private static final long MAX_RETAINED_HEAP_BYTES = 4 * 1024 * 1024;
+
+    private RecreationCycles recreationCycles;
+
+    @Before
+    public void setUp() {
+        recreationCycles = new RecreationCycles();
+    }
+
+    @After
+    public void tearDown() {
+        recreationCycles.destroy();
+    }
+
+    @Test
+    public void pendingCallsSurviveRecreation() {
+        recreationCycles.run(WARM_UP_CYCLES);
+        long heapBefore = RecreationCycles.getUsedHeap();
+        RecreationCycles.Measurements measurements = recreationCycles.run(CYCLES);
+        long retainedHeap = RecreationCycles.getUsedHeap() - heapBefore;
+
+        assertTrue("Saved state has " + measurements.getMaxStateBytes() + " B", measurements.getMaxStateBytes() <= MAX_SAVED_STATE_BYTES);
+        assertTrue("Saved state grew by " + measurements.getStateGrowthBytes() + " B", measurements.getStateGrowthBytes() <= MAX_SAVED_STATE_GROWTH_BYTES);
+        assertTrue("Cycles retained " + retainedHeap + " B of heap", retainedHeap <= MAX_RETAINED_HEAP_BYTES);
+
+        // results of requests made by the first activity reach calls that were restored by the last one
+        assertEquals(RecreationCycles.SYSTEM_REQUEST_CALLS, recreationCycles.grantSystemRequests());
+    }
+}
@@ -0,0 +1,83 @@
+package com.holidaycheck.permissify;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares creation time of the first rationale dialog with and without {@link DialogPreWarmer}. Only the first dialog in the JVM pays for
+ * loading classes and filling caches, so every measurement runs {@link FirstDialogCreationProbe} in a fresh JVM and the medians are compared.
+ */
+public class DialogPreWarmingTest {
+
+    private static final int FORKS = 3;
+
+    @Test
+    public void firstDialogIsFasterWithPreWarming() throws IOException, InterruptedException {
+        long coldNanos = measureFirstDialogNanos(false);
+        long preWarmedNanos = measureFirstDialogNanos(true);
+
+        assertTrue(String.format("First rationale dialog was created in %d us with pre-warming and in %d us without it",
+            preWarmedNanos / 1000, coldNanos / 1000), preWarmedNanos < coldNanos);
+    }
+
+    private static long measureFirstDialogNanos(boolean preWarm) throws IOException, InterruptedException {
+        long[] nanos = new long[FORKS];
+        for (int i = 0; i < FORKS; i++) {
+            nanos[i] = runProbe(preWarm);
+        }
+
+        Arrays.sort(nanos);
+        return nanos[FORKS / 2];
+    }
+
+    private static long runProbe(boolean preWarm) throws IOException, InterruptedException {
+        File resultFile = File.createTempFile("permissify-first-dialog", ".txt");
+        try {
+            Process process = new ProcessBuilder(
+                new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(),
+                "-cp", System.getProperty("java.class.path"),
+                "-D" + FirstDialogCreationProbe.PRE_WARM_PROPERTY + "=" + preWarm,
+                "-D" + FirstDialogCreationProbe.RESULT_FILE_PROPERTY + "=" + resultFile.getPath(),
+                JUnitCore.class.getName(),
+                FirstDialogCreationProbe.class.getName())
+                .redirectErrorStream(true)
+                .start();
+
+            // output has to be read, otherwise the probe blocks once the pipe is full
+            String output = read(process.getInputStream());
+            assertEquals("Probe failed:\n" + output, 0, process.waitFor());
+
+            String result = read(new FileInputStream(resultFile)).trim();
+            assertTrue("Probe didn't measure the dialog:\n" + output, !result.isEmpty());
+            return Long.parseLong(result);
+        } finally {
+            resultFile.delete();
+        }
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        Reader reader = new InputStreamReader(inputStream, "UTF-8");
+        try {
+            StringBuilder builder = new StringBuilder();
+            char[] buffer = new char[1024];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                builder.append(buffer, 0, count);
+            }
+            return builder.toString();
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.holidaycheck.permissify;
+
+import android.content.pm.PackageManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Permission platform that keeps requests until the test answers them. Results are passed on the thread that answers them.
+ */
+class FakePermissionPlatform implements PermissionPlatform {
+
+    private final Set<String> grantedPermissions = new HashSet<>();
+    private final Set<String> rationalePermissions = new HashSet<>();
+    private final List<Request> requests = new ArrayList<>();
+    private int checkCount;
+
+    void setGranted(String permission) {
+        grantedPermissions.add(permission);
+    }
+
+    void setShowRationale(String permission) {
+        rationalePermissions.add(permission);
+    }
+
+    /**
+     * Gets number of times that grant state of a permission was checked
+     */
+    int getCheckCount() {
+        return checkCount;
+    }
+
+    /**
+     * Gets number of requests that were not answered yet
+     */
+    int getPendingRequestCount() {
+        return requests.size();
+    }
+
+    /**
+     * Answers every request that was made so far with the same result for all permissions
+     */
+    void answerAll(boolean granted) {
+        List<Request> answeredRequests = new ArrayList<>(requests);
+        requests.clear();
+
+        for (Request request : answeredRequests) {
+            int[] grantResults = new int[request.permissions.length];
+            Arrays.fill(grantResults, granted ? PackageManager.PERMISSION_GRANTED : PackageManager.PERMISSION_DENIED);
+            if (granted) {
+                grantedPermissions.addAll(Arrays.asList(request.permissions));
+            }
+
+            request.listener.onRequestPermissionsResult(request.requestCode, request.permissions, grantResults);
+        }
+    }
+
+    @Override
+    public boolean isGranted(String permission) {
+        checkCount++;
+        return grantedPermissions.contains(permission);
+    }
+
+    @Override
+    public boolean shouldShowRationale(String permission) {
+        return rationalePermissions.contains(permission);
+    }
+
+    @Override
+    public void requestPermissions(String[] permissions, int requestCode, ResultListener listener) {
+        requests.add(new Request(permissions, requestCode, listener));
+    }
+
+    private static class Request {
+
+        final String[] permissions;
+        final int requestCode;
+        final ResultListener listener;
+
+        Request(String[] permissions, int requestCode, ResultListener listener) {
+            this.permissions = permissions;
+            this.requestCode = requestCode;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.holidaycheck.permissify;
+
+import android.app.Dialog;
+import android.content.DialogInterface;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ActivityController;
+
+import java.io.FileWriter;
+import java.io.IOException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures creation of the first rationale dialog in the JVM, the way it happens when the dialog is shown: the dialog is built by the factory
+ * from config, like in {@link PermissionRationaleDialogFragment#onCreateDialog}, and created, which inflates its layout.
+ * It is run by {@link DialogPreWarmingTest} in a fresh JVM, which passes whether or not to pre-warm dialogs and where to write the result.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class FirstDialogCreationProbe {
+
+    static final String PRE_WARM_PROPERTY = "permissify.probe.preWarm";
+    static final String RESULT_FILE_PROPERTY = "permissify.probe.resultFile";
+
+    private static final String PRE_WARM_THREAD_NAME = "Permissify-DialogPreWarm";
+    private static final long PRE_WARM_TIMEOUT_MILLIS = 10000;
+
+    private static final DialogInterface.OnClickListener NO_OP_LISTENER = new DialogInterface.OnClickListener() {
+        @Override
+        public void onClick(DialogInterface dialog, int which) {
+        }
+    };
+
+    private ActivityController<TestPermissifyActivity> controller;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        assumeTrue("Probe is run only by DialogPreWarmingTest", System.getProperty(RESULT_FILE_PROPERTY) != null);
+
+        boolean preWarm = Boolean.getBoolean(PRE_WARM_PROPERTY);
+        PermissifyConfig.initDefault(RuntimeEnvironment.application, new PermissifyConfig.Builder()
+            .withPermissionPlatform(new FakePermissionPlatform())
+            .withDialogPreWarming(preWarm)
+            .build());
+
+        if (preWarm) {
+            Thread preWarmThread = findThread(PRE_WARM_THREAD_NAME);
+            if (preWarmThread != null) {
+                preWarmThread.join(PRE_WARM_TIMEOUT_MILLIS);
+                assertFalse("Dialog classes were not pre-loaded in time", preWarmThread.isAlive());
+            }
+
+            // Robolectric doesn't run idle handlers, so the dialog that the main thread creates when it is idle is created here
+            DialogPreWarmer.createDialog(RuntimeEnvironment.application);
+        }
+
+        controller = Robolectric.buildActivity(TestPermissifyActivity.class).create().start().resume();
+    }
+
+    @After
+    public void tearDown() {
+        if (controller != null) {
+            controller.pause().stop().destroy();
+        }
+    }
+
+    @Test
+    public void measureFirstDialog() throws IOException {
+        long start = System.nanoTime();
+        Dialog dialog = PermissifyConfig.get().getRationaleDialogFactory().createDialog(controller.get(), "Rationale", NO_OP_LISTENER);
+        dialog.create();
+        long nanos = System.nanoTime() - start;
+
+        dialog.dismiss();
+
+        FileWriter writer = new FileWriter(System.getProperty(RESULT_FILE_PROPERTY));
+        try {
+            writer.write(Long.toString(nanos));
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static Thread findThread(String name) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (name.equals(thread.getName())) {
+                return thread;
+            }
+        }
+
+        return null;
+    }
+}
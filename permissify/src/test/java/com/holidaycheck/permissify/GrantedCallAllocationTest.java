@@ -0,0 +1,103 @@
+package com.holidaycheck.permissify;
+
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+
+import com.sun.management.ThreadMXBean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ActivityController;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Counts bytes allocated by the thread that calls {@link PermissifyManager#callWithPermission} for already granted permission,
+ * once the call path is warmed up, to make sure that it stays free of allocations.
+ * The permission is requested by the test package, so its grant state is read from the bitset rather than checked against the platform.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class GrantedCallAllocationTest {
+
+    private static final String PERMISSION = "com.holidaycheck.permissify.test.GRANTED_PERMISSION";
+    private static final int WARM_UP_CALLS = 20000;
+    private static final int CALLS = 100000;
+    private static final long WARM_UP_TIMEOUT_SECONDS = 10;
+
+    /**
+     * Reading allocated bytes of the thread allocates a few arrays on its own
+     */
+    private static final long MAX_ALLOCATED_BYTES = 1024;
+
+    private FakePermissionPlatform platform;
+    private ActivityController<TestPermissifyActivity> controller;
+
+    @Before
+    public void setUp() throws Exception {
+        // library manifest doesn't request any permission, Robolectric reads requested permissions of the test package from its package info
+        PackageInfo packageInfo = RuntimeEnvironment.application.getPackageManager()
+            .getPackageInfo(RuntimeEnvironment.application.getPackageName(), PackageManager.GET_PERMISSIONS);
+        String[] requestedPermissions = packageInfo.requestedPermissions != null ? packageInfo.requestedPermissions : new String[0];
+        packageInfo.requestedPermissions = Arrays.copyOf(requestedPermissions, requestedPermissions.length + 1);
+        packageInfo.requestedPermissions[requestedPermissions.length] = PERMISSION;
+        RuntimeEnvironment.getRobolectricPackageManager().addPackage(packageInfo);
+
+        platform = new FakePermissionPlatform();
+        platform.setGranted(PERMISSION);
+        PermissifyConfig.initDefault(new PermissifyConfig.Builder()
+            .withPermissionPlatform(platform)
+            .build());
+
+        PermissionInfoCache.get().warmUp(RuntimeEnvironment.application);
+        assertTrue("Permission metadata wasn't loaded", PermissionInfoCache.get().awaitWarmUp(WARM_UP_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        controller = Robolectric.buildActivity(TestPermissifyActivity.class).create().start().resume();
+    }
+
+    @After
+    public void tearDown() {
+        controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void grantedCallDoesNotAllocate() {
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue("Thread allocation counting is not supported by this JVM", threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        TestPermissifyActivity activity = controller.get();
+        PermissifyManager manager = activity.getPermissifyManager();
+        callWithPermission(manager, activity, WARM_UP_CALLS);
+
+        int checkCount = platform.getCheckCount();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        callWithPermission(manager, activity, CALLS);
+        long allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertEquals("Granted calls checked the permission against the platform instead of the bitset", checkCount, platform.getCheckCount());
+        assertEquals(WARM_UP_CALLS + CALLS, activity.resultCount);
+        assertEquals(PermissifyManager.CallRequestStatus.PERMISSION_GRANTED, activity.lastStatus);
+        assertTrue("Granted calls allocated " + allocatedBytes + " B, at most " + MAX_ALLOCATED_BYTES + " B are allowed", allocatedBytes <= MAX_ALLOCATED_BYTES);
+    }
+
+    private static void callWithPermission(PermissifyManager manager, TestPermissifyActivity activity, int calls) {
+        for (int i = 0; i < calls; i++) {
+            // the top of the call id range is reserved for asynchronous requests
+            manager.callWithPermission(activity, i & 0x0FFF, PERMISSION);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.holidaycheck.permissify;
+
+/**
+ * Scheduler of {@link PermissionCallTable} whose clock moves only when the test advances it. Timeout checks run on the test thread
+ * when they are due.
+ */
+class ManualScheduler implements PermissionCallTable.Scheduler {
+
+    private long now;
+    private Runnable task;
+    private long taskTime;
+
+    @Override
+    public long now() {
+        return now;
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayMillis) {
+        this.task = task;
+        this.taskTime = now + delayMillis;
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        if (this.task == task) {
+            this.task = null;
+        }
+    }
+
+    void advance(long millis) {
+        now += millis;
+        while (task != null && taskTime <= now) {
+            Runnable dueTask = task;
+            task = null;
+            dueTask.run();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.holidaycheck.permissify;
+
+import android.os.Parcel;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that every field of a pending call that is saved with instance state is restored from the parcel with the same value.
+ * Options flags are packed into a single int, so each of them is checked both set and cleared.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class PendingCallFormatTest {
+
+    private static final int RATIONALE_MSG_RES = 0x7f060001;
+    private static final int DENY_MSG_RES = 0x7f060002;
+    private static final String[] PERMISSIONS = new String[]{
+        "com.holidaycheck.permissify.test.PERMISSION_0",
+        "com.holidaycheck.permissify.test.PERMISSION_1"
+    };
+
+    @Test
+    public void roundTripKeepsSetFields() {
+        PermissionCallOptions options = new PermissionCallOptions.Builder()
+            .withRationaleDialogMsg("Rationale")
+            .withRationaleEnabled(false)
+            .withDenyDialogMsg("Deny")
+            .withTimeout(5000)
+            .build();
+        options.setRationaleDialogMsgRes(RATIONALE_MSG_RES);
+        options.setDenyDialogMsgRes(DENY_MSG_RES);
+
+        PermissifyManager.PermissionCallInternalData internalData = new PermissifyManager.PermissionCallInternalData();
+        internalData.callId = 7;
+        internalData.requestFromFragment = true;
+        internalData.fragmentId = 42;
+        internalData.callbackToken = "token";
+        internalData.requestToken = "request";
+        internalData.permissions = PERMISSIONS;
+        internalData.multiplePermissions = true;
+        internalData.async = true;
+        internalData.coalesced = true;
+        internalData.inFlightCallId = 3;
+        internalData.systemRequestInFlight = true;
+        internalData.requestStartTime = 1000;
+        internalData.rationaleStartTime = 2000;
+        internalData.systemRequestStartTime = 3000;
+        internalData.pendingSince = 4000;
+        internalData.deadline = Long.MAX_VALUE;
+
+        PermissifyManager.PendingPermissionCall restoredCall = roundTrip(new PermissifyManager.PendingPermissionCall(options, internalData));
+
+        PermissionCallOptions restoredOptions = restoredCall.options;
+        assertTrue(restoredOptions.showRationaleDialog());
+        assertFalse(restoredOptions.isRationaleEnabled());
+        assertTrue(restoredOptions.showDenyDialog());
+        assertEquals("Rationale", restoredOptions.getRationaleDialogMsg());
+        assertEquals(RATIONALE_MSG_RES, restoredOptions.getRationaleDialogMsgRes());
+        assertEquals("Deny", restoredOptions.getDenyDialogMsg());
+        assertEquals(DENY_MSG_RES, restoredOptions.getDenyDialogMsgRes());
+        assertEquals(5000, restoredOptions.getTimeoutMillis());
+
+        PermissifyManager.PermissionCallInternalData restoredData = restoredCall.internalData;
+        assertEquals(7, restoredCall.getCallId());
+        assertTrue(restoredData.requestFromFragment);
+        assertEquals(42, restoredData.fragmentId);
+        assertEquals("token", restoredData.callbackToken);
+        assertEquals("request", restoredData.requestToken);
+        assertArrayEquals(PERMISSIONS, restoredData.permissions);
+        assertTrue(restoredData.multiplePermissions);
+        assertTrue(restoredData.async);
+        assertTrue(restoredData.coalesced);
+        assertEquals(3, restoredData.inFlightCallId);
+        assertTrue(restoredData.systemRequestInFlight);
+        assertEquals(1000, restoredData.requestStartTime);
+        assertEquals(2000, restoredData.rationaleStartTime);
+        assertEquals(3000, restoredData.systemRequestStartTime);
+        assertEquals(4000, restoredData.pendingSince);
+        assertEquals(Long.MAX_VALUE, restoredData.deadline);
+    }
+
+    @Test
+    public void roundTripKeepsClearedFields() {
+        PermissionCallOptions options = new PermissionCallOptions.Builder()
+            .withDefaultRationaleDialog(false)
+            .withDefaultDenyDialog(false)
+            .build();
+
+        PermissifyManager.PermissionCallInternalData internalData = new PermissifyManager.PermissionCallInternalData();
+        internalData.callId = -1;
+        internalData.permissions = new String[]{ PERMISSIONS[0] };
+
+        PermissifyManager.PendingPermissionCall restoredCall = roundTrip(new PermissifyManager.PendingPermissionCall(options, internalData));
+
+        PermissionCallOptions restoredOptions = restoredCall.options;
+        assertFalse(restoredOptions.showRationaleDialog());
+        assertTrue(restoredOptions.isRationaleEnabled());
+        assertFalse(restoredOptions.showDenyDialog());
+        assertNull(restoredOptions.getRationaleDialogMsg());
+        assertEquals(0, restoredOptions.getRationaleDialogMsgRes());
+        assertNull(restoredOptions.getDenyDialogMsg());
+        assertEquals(0, restoredOptions.getDenyDialogMsgRes());
+        assertEquals(0, restoredOptions.getTimeoutMillis());
+
+        PermissifyManager.PermissionCallInternalData restoredData = restoredCall.internalData;
+        assertEquals(-1, restoredCall.getCallId());
+        assertFalse(restoredData.requestFromFragment);
+        assertEquals(0, restoredData.fragmentId);
+        assertNull(restoredData.callbackToken);
+        assertNull(restoredData.requestToken);
+        assertArrayEquals(new String[]{ PERMISSIONS[0] }, restoredData.permissions);
+        assertFalse(restoredData.multiplePermissions);
+        assertFalse(restoredData.async);
+        assertFalse(restoredData.coalesced);
+        assertEquals(0, restoredData.inFlightCallId);
+        assertFalse(restoredData.systemRequestInFlight);
+        assertEquals(0, restoredData.requestStartTime);
+        assertEquals(0, restoredData.rationaleStartTime);
+        assertEquals(0, restoredData.systemRequestStartTime);
+        assertEquals(0, restoredData.pendingSince);
+        assertEquals(0, restoredData.deadline);
+    }
+
+    private static PermissifyManager.PendingPermissionCall roundTrip(PermissifyManager.PendingPermissionCall pendingCall) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            pendingCall.writeToParcel(parcel, 0);
+            int dataSize = parcel.dataSize();
+            parcel.setDataPosition(0);
+
+            PermissifyManager.PendingPermissionCall restoredCall = PermissifyManager.PendingPermissionCall.CREATOR.createFromParcel(parcel);
+            assertEquals("Not every written value was read back", dataSize, parcel.dataPosition());
+            return restoredCall;
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.holidaycheck.permissify;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs thousands of random permission flows through {@link PermissionCallTable} and {@link SimulatedPermissionPlatform} on a plain JVM,
+ * without Android or Robolectric. Calls are started, coalesced, cancelled, timed out and evicted while results of earlier requests arrive,
+ * and call ids are reused, so results have to be matched by request token. Every call has to be finished exactly once and none of them
+ * can time out before its own deadline.
+ */
+public class PermissionCallTableLoadTest {
+
+    // same value as PackageManager.PERMISSION_GRANTED
+    private static final int PERMISSION_GRANTED = 0;
+    private static final String[] PERMISSIONS = new String[]{
+        "com.holidaycheck.permissify.test.PERMISSION_0",
+        "com.holidaycheck.permissify.test.PERMISSION_1",
+        "com.holidaycheck.permissify.test.PERMISSION_2",
+        "com.holidaycheck.permissify.test.PERMISSION_3"
+    };
+    private static final int STEPS = 20000;
+    private static final int CALL_IDS = 64;
+    private static final int MAX_PENDING_CALLS = 8;
+    private static final long MAX_TIMEOUT_MILLIS = 1000;
+    private static final long MAX_CLOCK_STEP_MILLIS = 100;
+    private static final long RESULT_TIMEOUT_SECONDS = 5;
+
+    private final BlockingQueue<Runnable> results = new LinkedBlockingQueue<>();
+    private final List<TestPermissionCall> calls = new ArrayList<>();
+    private final Random random = new Random(0);
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private SimulatedPermissionPlatform platform;
+    private PermissionCallTable<TestPermissionCall> callTable;
+    private int requestsInFlight;
+
+    @Before
+    public void setUp() {
+        platform = new SimulatedPermissionPlatform.Builder()
+            .withGrantProbability(0.3)
+            .withSeed(0)
+            .withResultExecutor(new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    results.add(command);
+                }
+            })
+            .build();
+        callTable = new PermissionCallTable<>(platform, scheduler, MAX_PENDING_CALLS, new PermissionCallTable.Listener<TestPermissionCall>() {
+            @Override
+            public void onCallFinished(TestPermissionCall call, PermissifyManager.CallRequestStatus status) {
+                if (status == PermissifyManager.CallRequestStatus.REQUEST_TIMED_OUT) {
+                    long deadline = call.getState().deadline;
+                    assertTrue("Call timed out before its deadline", deadline > 0 && deadline <= scheduler.now());
+                }
+                call.finish(status);
+            }
+
+            @Override
+            public void onCallPromoted(TestPermissionCall call) {
+                // promoted call waits for rationale, which is confirmed or cancelled like rationale of any other call
+            }
+
+            @Override
+            public void onRequestResult(int requestCode, String requestToken, String[] permissions, int[] grantResults) {
+                requestsInFlight--;
+                TestPermissionCall requestingCall = callTable.removeRequestingCall(requestCode, requestToken);
+                if (requestingCall != null) {
+                    requestingCall.finish(getStatus(requestingCall, permissions, grantResults));
+                }
+                for (TestPermissionCall coalescedCall : callTable.removeCoalescedCalls(requestCode, requestToken)) {
+                    coalescedCall.finish(getStatus(coalescedCall, permissions, grantResults));
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        platform.shutdown();
+    }
+
+    @Test
+    public void everyCallIsFinishedOnce() throws InterruptedException {
+        for (int i = 0; i < STEPS; i++) {
+            switch (random.nextInt(7)) {
+                case 0:
+                case 1:
+                    startCall();
+                    break;
+                case 2:
+                    confirmRationale();
+                    break;
+                case 3:
+                    cancelCall();
+                    break;
+                case 4:
+                    scheduler.advance(random.nextInt((int) MAX_CLOCK_STEP_MILLIS));
+                    break;
+                case 5:
+                    if (requestsInFlight > 0) {
+                        deliverNextResult();
+                    }
+                    break;
+                default:
+                    // like revoking permission in the app settings
+                    platform.setGranted(PERMISSIONS[random.nextInt(PERMISSIONS.length)], false);
+                    break;
+            }
+
+            assertTrue("Table has more calls than allowed", callTable.size() <= MAX_PENDING_CALLS);
+        }
+
+        // calls that wait for rationale are cancelled, calls that wait for system request get its result
+        for (TestPermissionCall call : callTable.getCalls()) {
+            if (!call.getState().systemRequestInFlight && !call.getState().coalesced) {
+                callTable.finish(call, PermissifyManager.CallRequestStatus.REQUEST_CANCELLED);
+            }
+        }
+        while (requestsInFlight > 0) {
+            deliverNextResult();
+        }
+
+        assertEquals(0, callTable.size());
+        for (TestPermissionCall call : calls) {
+            assertEquals("Call " + call.getState().callId + " was finished wrong number of times", 1, call.finishCount);
+            assertNotNull(call.status);
+        }
+    }
+
+    private void startCall() {
+        int callId = random.nextInt(CALL_IDS);
+        if (callTable.isPending(callId)) {
+            return;
+        }
+
+        String[] permissions = new String[]{ PERMISSIONS[random.nextInt(PERMISSIONS.length)] };
+        long timeoutMillis = random.nextBoolean() ? 0 : 1 + random.nextInt((int) MAX_TIMEOUT_MILLIS);
+        TestPermissionCall call = new TestPermissionCall(callId, timeoutMillis, permissions);
+        calls.add(call);
+
+        if (platform.isGranted(permissions[0])) {
+            call.finish(PermissifyManager.CallRequestStatus.PERMISSION_GRANTED);
+            return;
+        }
+
+        TestPermissionCall inFlightCall = callTable.findInFlightCall(callId, permissions);
+        if (inFlightCall != null) {
+            callTable.coalesce(call, inFlightCall);
+            return;
+        }
+
+        callTable.add(call, null);
+        if (!platform.shouldShowRationale(permissions[0])) {
+            request(call);
+        }
+    }
+
+    private void confirmRationale() {
+        TestPermissionCall call = pickPendingCall();
+        if (call != null && !call.getState().coalesced && !call.getState().systemRequestInFlight) {
+            request(call);
+        }
+    }
+
+    private void cancelCall() {
+        TestPermissionCall call = pickPendingCall();
+        if (call != null) {
+            callTable.finish(call, PermissifyManager.CallRequestStatus.REQUEST_CANCELLED);
+        }
+    }
+
+    private TestPermissionCall pickPendingCall() {
+        List<TestPermissionCall> pendingCalls = callTable.getCalls();
+        return pendingCalls.isEmpty() ? null : pendingCalls.get(random.nextInt(pendingCalls.size()));
+    }
+
+    private void request(TestPermissionCall call) {
+        requestsInFlight++;
+        callTable.request(call, call.getState().permissions);
+    }
+
+    private void deliverNextResult() throws InterruptedException {
+        Runnable result = results.poll(RESULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("Platform didn't deliver the result", result);
+        result.run();
+    }
+
+    private PermissifyManager.CallRequestStatus getStatus(TestPermissionCall call, String[] permissions, int[] grantResults) {
+        String permission = call.getState().permissions[0];
+        for (int i = 0; i < permissions.length; i++) {
+            if (permissions[i].equals(permission)) {
+                return callTable.getStatus(permission, grantResults[i] == PERMISSION_GRANTED);
+            }
+        }
+
+        return callTable.getStatus(permission, platform.isGranted(permission));
+    }
+}
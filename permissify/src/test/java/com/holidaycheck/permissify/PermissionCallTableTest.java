@@ -0,0 +1,138 @@
+package com.holidaycheck.permissify;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that calls coalesced with in-flight call are not finished when the in-flight call is finished early on its own,
+ * it runs on a plain JVM
+ */
+public class PermissionCallTableTest {
+
+    private static final String PERMISSION = "com.holidaycheck.permissify.test.PERMISSION_0";
+    private static final String OTHER_PERMISSION = "com.holidaycheck.permissify.test.PERMISSION_1";
+    private static final long TIMEOUT_MILLIS = 1000;
+    private static final int MAX_PENDING_CALLS = 32;
+
+    private final FakePermissionPlatform platform = new FakePermissionPlatform();
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final List<TestPermissionCall> promotedCalls = new ArrayList<>();
+    private PermissionCallTable<TestPermissionCall> callTable;
+
+    @Before
+    public void setUp() {
+        callTable = new PermissionCallTable<>(platform, scheduler, MAX_PENDING_CALLS, new PermissionCallTable.Listener<TestPermissionCall>() {
+            @Override
+            public void onCallFinished(TestPermissionCall call, PermissifyManager.CallRequestStatus status) {
+                call.finish(status);
+            }
+
+            @Override
+            public void onCallPromoted(TestPermissionCall call) {
+                promotedCalls.add(call);
+            }
+
+            @Override
+            public void onRequestResult(int requestCode, String requestToken, String[] permissions, int[] grantResults) {
+                TestPermissionCall requestingCall = callTable.removeRequestingCall(requestCode, requestToken);
+                if (requestingCall != null) {
+                    requestingCall.finish(PermissifyManager.CallRequestStatus.PERMISSION_GRANTED);
+                }
+                for (TestPermissionCall coalescedCall : callTable.removeCoalescedCalls(requestCode, requestToken)) {
+                    coalescedCall.finish(PermissifyManager.CallRequestStatus.PERMISSION_GRANTED);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void coalescedCallIsNotTimedOutWithInFlightCall() {
+        TestPermissionCall inFlightCall = new TestPermissionCall(1, TIMEOUT_MILLIS, PERMISSION);
+        TestPermissionCall coalescedCall = new TestPermissionCall(2, 0, PERMISSION);
+        callTable.add(inFlightCall, null);
+        callTable.coalesce(coalescedCall, inFlightCall);
+
+        scheduler.advance(TIMEOUT_MILLIS);
+
+        assertEquals(PermissifyManager.CallRequestStatus.REQUEST_TIMED_OUT, inFlightCall.status);
+        assertEquals(0, coalescedCall.finishCount);
+        assertTrue(callTable.isPending(2));
+        assertEquals(Arrays.asList(coalescedCall), promotedCalls);
+        assertFalse(coalescedCall.getState().coalesced);
+    }
+
+    @Test
+    public void coalescedCallIsNotCancelledWithInFlightCall() {
+        TestPermissionCall inFlightCall = new TestPermissionCall(1, 0, PERMISSION);
+        TestPermissionCall firstCoalescedCall = new TestPermissionCall(2, 0, PERMISSION);
+        TestPermissionCall secondCoalescedCall = new TestPermissionCall(3, 0, PERMISSION);
+        callTable.add(inFlightCall, null);
+        callTable.coalesce(firstCoalescedCall, inFlightCall);
+        scheduler.advance(1);
+        callTable.coalesce(secondCoalescedCall, inFlightCall);
+
+        callTable.finish(inFlightCall, PermissifyManager.CallRequestStatus.REQUEST_CANCELLED);
+
+        assertEquals(PermissifyManager.CallRequestStatus.REQUEST_CANCELLED, inFlightCall.status);
+        assertEquals(0, firstCoalescedCall.finishCount);
+        assertEquals(0, secondCoalescedCall.finishCount);
+        assertEquals(Arrays.asList(firstCoalescedCall), promotedCalls);
+        assertTrue(secondCoalescedCall.getState().coalesced);
+        assertEquals(2, secondCoalescedCall.getState().inFlightCallId);
+
+        callTable.request(firstCoalescedCall, firstCoalescedCall.getState().permissions);
+        platform.answerAll(true);
+
+        assertEquals(PermissifyManager.CallRequestStatus.PERMISSION_GRANTED, firstCoalescedCall.status);
+        assertEquals(PermissifyManager.CallRequestStatus.PERMISSION_GRANTED, secondCoalescedCall.status);
+        assertEquals(0, callTable.size());
+    }
+
+    @Test
+    public void coalescedCallsWaitForSystemRequestOfCancelledCall() {
+        TestPermissionCall inFlightCall = new TestPermissionCall(1, TIMEOUT_MILLIS, PERMISSION);
+        TestPermissionCall coalescedCall = new TestPermissionCall(2, 0, PERMISSION);
+        callTable.add(inFlightCall, null);
+        callTable.request(inFlightCall, inFlightCall.getState().permissions);
+        callTable.coalesce(coalescedCall, inFlightCall);
+
+        scheduler.advance(TIMEOUT_MILLIS);
+
+        assertEquals(PermissifyManager.CallRequestStatus.REQUEST_TIMED_OUT, inFlightCall.status);
+        assertEquals(0, coalescedCall.finishCount);
+        assertTrue(promotedCalls.isEmpty());
+
+        platform.answerAll(true);
+
+        assertEquals(1, inFlightCall.finishCount);
+        assertEquals(PermissifyManager.CallRequestStatus.PERMISSION_GRANTED, coalescedCall.status);
+        assertEquals(0, callTable.size());
+    }
+
+    @Test
+    public void callsWithPermissionsThatPromotedCallDoesNotCoverArePromotedAsWell() {
+        TestPermissionCall inFlightCall = new TestPermissionCall(1, 0, PERMISSION, OTHER_PERMISSION);
+        TestPermissionCall coalescedCall = new TestPermissionCall(2, 0, PERMISSION);
+        TestPermissionCall otherCoalescedCall = new TestPermissionCall(3, 0, OTHER_PERMISSION);
+        callTable.add(inFlightCall, null);
+        callTable.coalesce(coalescedCall, inFlightCall);
+        callTable.coalesce(otherCoalescedCall, inFlightCall);
+
+        callTable.finish(inFlightCall, PermissifyManager.CallRequestStatus.REQUEST_EVICTED);
+
+        assertEquals(Arrays.asList(coalescedCall, otherCoalescedCall), promotedCalls);
+        assertNull(coalescedCall.status);
+        assertNull(otherCoalescedCall.status);
+        assertEquals(coalescedCall, callTable.findInFlightCall(4, new String[]{ PERMISSION }));
+        assertEquals(otherCoalescedCall, callTable.findInFlightCall(4, new String[]{ OTHER_PERMISSION }));
+    }
+}
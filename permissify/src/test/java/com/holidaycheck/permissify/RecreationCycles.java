@@ -0,0 +1,164 @@
+package com.holidaycheck.permissify;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import org.robolectric.Robolectric;
+import org.robolectric.util.ActivityController;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Activity with calls that wait for rationale dialog or system request, which is recreated over and over again.
+ * Every other cycle passes saved state through a Parcel, like when the process is recreated. Each cycle checks that none of the calls is lost.
+ */
+class RecreationCycles {
+
+    static final int RATIONALE_CALLS = 8;
+    static final int SYSTEM_REQUEST_CALLS = 8;
+
+    private static final String PERMISSION_PREFIX = "com.holidaycheck.permissify.test.PERMISSION_";
+    private static final String DIALOG_TAG = "Permissify";
+
+    private final FakePermissionPlatform platform;
+    private ActivityController<TestPermissifyActivity> controller;
+
+    RecreationCycles() {
+        platform = new FakePermissionPlatform();
+        PermissifyConfig.initDefault(new PermissifyConfig.Builder()
+            .withPermissionPlatform(platform)
+            .build());
+
+        controller = Robolectric.buildActivity(TestPermissifyActivity.class).create().start().resume();
+
+        TestPermissifyActivity activity = controller.get();
+        for (int i = 0; i < RATIONALE_CALLS; i++) {
+            String permission = PERMISSION_PREFIX + "RATIONALE_" + i;
+            platform.setShowRationale(permission);
+            activity.getPermissifyManager().callWithPermission(activity, i, permission);
+        }
+        for (int i = 0; i < SYSTEM_REQUEST_CALLS; i++) {
+            activity.getPermissifyManager().callWithPermission(activity, RATIONALE_CALLS + i, PERMISSION_PREFIX + "SYSTEM_REQUEST_" + i);
+        }
+        Robolectric.flushForegroundThreadScheduler();
+        assertCallsPending(-1);
+    }
+
+    Measurements run(int cycles) {
+        Measurements measurements = new Measurements(cycles);
+
+        for (int cycle = 0; cycle < cycles; cycle++) {
+            controller.pause();
+
+            long saveStart = System.nanoTime();
+            Bundle savedState = new Bundle();
+            controller.saveInstanceState(savedState);
+            Parcel parcel = Parcel.obtain();
+            savedState.writeToParcel(parcel, 0);
+            measurements.stateBytes[cycle] = parcel.dataSize();
+
+            if (cycle % 2 == 1) {
+                parcel.setDataPosition(0);
+                savedState = Bundle.CREATOR.createFromParcel(parcel);
+                savedState.setClassLoader(RecreationCycles.class.getClassLoader());
+                savedState.size();
+            }
+            parcel.recycle();
+            measurements.saveNanos[cycle] = System.nanoTime() - saveStart;
+
+            controller.stop().destroy();
+
+            long recreationStart = System.nanoTime();
+            controller = Robolectric.buildActivity(TestPermissifyActivity.class)
+                .create(savedState)
+                .start()
+                .restoreInstanceState(savedState)
+                .resume();
+            Robolectric.flushForegroundThreadScheduler();
+            measurements.recreationNanos[cycle] = System.nanoTime() - recreationStart;
+
+            assertCallsPending(cycle);
+        }
+
+        return measurements;
+    }
+
+    /**
+     * Grants every system request that was made so far, including the ones made by activities that were recreated since then
+     *
+     * @return number of results delivered to the current activity
+     */
+    int grantSystemRequests() {
+        platform.answerAll(true);
+        return controller.get().resultCount;
+    }
+
+    void destroy() {
+        controller.pause().stop().destroy();
+    }
+
+    static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void assertCallsPending(int cycle) {
+        PermissifyManager manager = controller.get().getPermissifyManager();
+        for (int callId = 0; callId < RATIONALE_CALLS + SYSTEM_REQUEST_CALLS; callId++) {
+            if (!manager.isPending(callId)) {
+                fail("Call " + callId + " was lost in cycle " + cycle);
+            }
+        }
+
+        if (controller.get().getSupportFragmentManager().findFragmentByTag(DIALOG_TAG) == null) {
+            fail("Rationale dialog was lost in cycle " + cycle);
+        }
+    }
+
+    static class Measurements {
+
+        final int[] stateBytes;
+        final long[] saveNanos;
+        final long[] recreationNanos;
+
+        Measurements(int cycles) {
+            stateBytes = new int[cycles];
+            saveNanos = new long[cycles];
+            recreationNanos = new long[cycles];
+        }
+
+        int getMaxStateBytes() {
+            int max = 0;
+            for (int bytes : stateBytes) {
+                max = Math.max(max, bytes);
+            }
+
+            return max;
+        }
+
+        int getStateGrowthBytes() {
+            return stateBytes[stateBytes.length - 1] - stateBytes[0];
+        }
+
+        long getSaveMicros(double percentile) {
+            return percentile(saveNanos, percentile) / 1000;
+        }
+
+        long getRecreationMicros(double percentile) {
+            return percentile(recreationNanos, percentile) / 1000;
+        }
+
+        private static long percentile(long[] values, double percentile) {
+            long[] sortedValues = values.clone();
+            Arrays.sort(sortedValues);
+            return sortedValues[Math.max(0, (int) Math.ceil(percentile * sortedValues.length) - 1)];
+        }
+    }
+}
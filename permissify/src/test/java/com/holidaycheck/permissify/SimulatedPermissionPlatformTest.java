@@ -0,0 +1,132 @@
+package com.holidaycheck.permissify;
+
+import android.os.Bundle;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ActivityController;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs permission calls of PermissifyManager against {@link SimulatedPermissionPlatform}. Results are queued by the result executor
+ * and handed to the manager on the test thread, which is the main thread of Robolectric.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SimulatedPermissionPlatformTest {
+
+    private static final String PERMISSION = "com.holidaycheck.permissify.test.PERMISSION_0";
+    private static final String OTHER_PERMISSION = "com.holidaycheck.permissify.test.PERMISSION_1";
+    private static final int CALL_ID = 1;
+    private static final long RESULT_TIMEOUT_SECONDS = 5;
+
+    private final BlockingQueue<Runnable> results = new LinkedBlockingQueue<>();
+    private SimulatedPermissionPlatform platform;
+
+    @After
+    public void tearDown() {
+        platform.shutdown();
+    }
+
+    @Test
+    public void grantedRequestIsDelivered() throws InterruptedException {
+        initPlatform(1);
+        TestPermissifyActivity activity = Robolectric.buildActivity(TestPermissifyActivity.class).create().start().resume().get();
+
+        activity.getPermissifyManager().callWithPermission(activity, CALL_ID, PERMISSION);
+        deliverNextResult();
+
+        assertEquals(1, platform.getRequestCount());
+        assertEquals(1, activity.resultCount);
+        assertEquals(CALL_ID, activity.lastCallId);
+        assertEquals(PermissifyManager.CallRequestStatus.PERMISSION_GRANTED, activity.lastStatus);
+        assertFalse(activity.getPermissifyManager().isPending(CALL_ID));
+    }
+
+    @Test
+    public void deniedRequestIsDelivered() throws InterruptedException {
+        initPlatform(0);
+        TestPermissifyActivity activity = Robolectric.buildActivity(TestPermissifyActivity.class).create().start().resume().get();
+
+        activity.getPermissifyManager().callWithPermission(activity, CALL_ID, PERMISSION);
+        deliverNextResult();
+
+        assertEquals(1, activity.resultCount);
+        assertEquals(PermissifyManager.CallRequestStatus.PERMISSION_DENIED_ONCE, activity.lastStatus);
+    }
+
+    @Test
+    public void resultIsDeliveredToRecreatedActivity() throws InterruptedException {
+        initPlatform(1);
+        ActivityController<TestPermissifyActivity> controller = Robolectric.buildActivity(TestPermissifyActivity.class).create().start().resume();
+        TestPermissifyActivity activity = controller.get();
+        activity.getPermissifyManager().callWithPermission(activity, CALL_ID, PERMISSION);
+
+        Bundle savedState = new Bundle();
+        controller.pause().saveInstanceState(savedState).stop().destroy();
+        TestPermissifyActivity recreatedActivity = Robolectric.buildActivity(TestPermissifyActivity.class)
+            .create(savedState).start().restoreInstanceState(savedState).resume().get();
+        deliverNextResult();
+
+        assertEquals(0, activity.resultCount);
+        assertEquals(1, recreatedActivity.resultCount);
+        assertEquals(PermissifyManager.CallRequestStatus.PERMISSION_GRANTED, recreatedActivity.lastStatus);
+    }
+
+    @Test
+    public void resultIsNotDeliveredToCallOfAnotherActivityWithTheSameId() throws InterruptedException {
+        initPlatform(1);
+        ActivityController<TestPermissifyActivity> controller = Robolectric.buildActivity(TestPermissifyActivity.class).create().start().resume();
+        TestPermissifyActivity activity = controller.get();
+        activity.getPermissifyManager().callWithPermission(activity, CALL_ID, PERMISSION);
+        TestPermissifyActivity otherActivity = Robolectric.buildActivity(TestPermissifyActivity.class).create().start().resume().get();
+        otherActivity.getPermissifyManager().callWithPermission(otherActivity, CALL_ID, OTHER_PERMISSION);
+
+        controller.pause().stop().destroy();
+        deliverNextResult();
+
+        assertEquals(0, otherActivity.resultCount);
+        assertTrue(otherActivity.getPermissifyManager().isPending(CALL_ID));
+
+        deliverNextResult();
+
+        assertEquals(1, otherActivity.resultCount);
+        assertEquals(PermissifyManager.CallRequestStatus.PERMISSION_GRANTED, otherActivity.lastStatus);
+    }
+
+    private void initPlatform(double grantProbability) {
+        platform = new SimulatedPermissionPlatform.Builder()
+            .withGrantProbability(grantProbability)
+            .withSeed(0)
+            .withResultExecutor(new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    results.add(command);
+                }
+            })
+            .build();
+        PermissifyConfig.initDefault(new PermissifyConfig.Builder()
+            .withPermissionPlatform(platform)
+            .build());
+    }
+
+    private void deliverNextResult() throws InterruptedException {
+        Runnable result = results.poll(RESULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("Platform didn't deliver the result", result);
+        result.run();
+        Robolectric.flushForegroundThreadScheduler();
+    }
+}
@@ -0,0 +1,26 @@
+package com.holidaycheck.permissify;
+
+import android.os.Bundle;
+
+/**
+ * PermissifyActivity that counts delivered results without allocating. Test manifest doesn't declare it, so it sets AppCompat theme on its own.
+ */
+public class TestPermissifyActivity extends PermissifyActivity {
+
+    int resultCount;
+    int lastCallId;
+    PermissifyManager.CallRequestStatus lastStatus;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        setTheme(R.style.Theme_AppCompat_Light);
+        super.onCreate(savedInstanceState);
+    }
+
+    @Override
+    public void onCallWithPermissionResult(int callId, PermissifyManager.CallRequestStatus status) {
+        resultCount++;
+        lastCallId = callId;
+        lastStatus = status;
+    }
+}
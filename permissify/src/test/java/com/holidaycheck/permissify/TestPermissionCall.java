@@ -0,0 +1,33 @@
+package com.holidaycheck.permissify;
+
+/**
+ * Pending call of {@link PermissionCallTable} that remembers how it was finished
+ */
+class TestPermissionCall implements PermissionCallTable.Call {
+
+    private final PermissionCallState state = new PermissionCallState();
+    private final long timeoutMillis;
+    int finishCount;
+    PermissifyManager.CallRequestStatus status;
+
+    TestPermissionCall(int callId, long timeoutMillis, String... permissions) {
+        this.state.callId = callId;
+        this.state.permissions = permissions;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    void finish(PermissifyManager.CallRequestStatus status) {
+        this.finishCount++;
+        this.status = status;
+    }
+
+    @Override
+    public PermissionCallState getState() {
+        return state;
+    }
+
+    @Override
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+}
@@ -12,6 +12,7 @@ import android.widget.TextView;
 import butterknife.BindView;
 import butterknife.ButterKnife;
 import butterknife.OnClick;
+import com.holidaycheck.permissify.OnPermissionResult;
 import com.holidaycheck.permissify.PermissifyActivity;
 import com.holidaycheck.permissify.PermissifyManager;
 import com.holidaycheck.permissify.PermissionCallOptions;
@@ -61,13 +62,6 @@ public class SampleActivity extends PermissifyActivity {
                 case SHOW_PERMISSION_RATIONALE:
                     //do some custom logic
             }
-        } else if (callId == CAMERA_PERMISSION_REQUEST_ID) {
-            visualiseStatus(cameraStatus, status);
-
-            if (status == PermissifyManager.CallRequestStatus.SHOW_PERMISSION_RATIONALE) {
-                showCameraRationaleSnackbar(callId);
-            }
-
         } else if (callId == CONTACTS_PERMISSION_REQUEST_ID) {
             visualiseStatus(contactsStatus, status);
 
@@ -75,6 +69,17 @@ public class SampleActivity extends PermissifyActivity {
         }
     }
 
+    //results of camera call are dispatched to annotated methods instead of onCallWithPermissionResult
+    @OnPermissionResult(callId = CAMERA_PERMISSION_REQUEST_ID)
+    void onCameraPermissionResult(PermissifyManager.CallRequestStatus status) {
+        visualiseStatus(cameraStatus, status);
+    }
+
+    @OnPermissionResult(callId = CAMERA_PERMISSION_REQUEST_ID, status = PermissifyManager.CallRequestStatus.SHOW_PERMISSION_RATIONALE)
+    void onCameraPermissionRationale() {
+        showCameraRationaleSnackbar(CAMERA_PERMISSION_REQUEST_ID);
+    }
+
     @OnClick(R.id.location_button)
     protected void onLocationClick() {
         //call to permissify using default dialog text & behaviour
@@ -83,7 +88,7 @@ public class SampleActivity extends PermissifyActivity {
 
     @OnClick(R.id.camera_button)
     protected void onCameraClick() {
-        //call to permissify using default deny dialog & custom behaviour for rationale dialog (handled in onCallWithPermissionResult)
+        //call to permissify using default deny dialog & custom behaviour for rationale dialog (handled in onCameraPermissionRationale)
         getPermissifyManager().callWithPermission(this, CAMERA_PERMISSION_REQUEST_ID, Manifest.permission.CAMERA,
             new PermissionCallOptions.Builder()
                 .withDefaultDenyDialog(true)
@@ -124,6 +129,14 @@ public class SampleActivity extends PermissifyActivity {
                 return getString(R.string.permission_status_denied_forever);
             case SHOW_PERMISSION_RATIONALE:
                 return getString(R.string.permission_status_rationale);
+            case REQUEST_THROTTLED:
+                return getString(R.string.permission_status_throttled);
+            case REQUEST_CANCELLED:
+                return getString(R.string.permission_status_cancelled);
+            case REQUEST_TIMED_OUT:
+                return getString(R.string.permission_status_timed_out);
+            case REQUEST_EVICTED:
+                return getString(R.string.permission_status_evicted);
             default:
                 return "";
         }